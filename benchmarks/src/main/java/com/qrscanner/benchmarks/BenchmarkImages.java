@@ -0,0 +1,56 @@
+package com.qrscanner.benchmarks;
+
+import com.google.zxing.WriterException;
+import com.qrscanner.QRProcessor;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/** Builds the camera-like frames and payloads shared by the benchmarks. */
+final class BenchmarkImages {
+    /** Code side as a fraction of the shorter frame side, roughly a code held up to a webcam. */
+    private static final double CODE_FRACTION = 0.45;
+
+    private BenchmarkImages() {}
+
+    /** A frame of the given size; with a payload, one code of that payload is drawn in the middle. */
+    static BufferedImage frame(QRProcessor processor, int width, int height, String payload) throws WriterException {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        // A soft gradient instead of a flat fill, so miss frames still give the binarizer some work.
+        g.setPaint(new GradientPaint(0, 0, new Color(170, 170, 160), width, height, new Color(225, 220, 215)));
+        g.fillRect(0, 0, width, height);
+        if (payload != null) {
+            BufferedImage code = processor.generateQRCodeImage(payload);
+            int size = (int) (Math.min(width, height) * CODE_FRACTION);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g.drawImage(code, (width - size) / 2, (height - size) / 2, size, size, null);
+        }
+        g.dispose();
+        return frame;
+    }
+
+    /** A payload of roughly the requested density: a short URL, a WiFi login or a long block of text. */
+    static String payload(String density) {
+        switch (density) {
+            case "low": return "https://example.com/";
+            case "medium": return "WIFI:T:WPA;S:Benchmark Network 5G;P:correct horse battery staple;H:false;;";
+            case "high":
+                StringBuilder text = new StringBuilder();
+                while (text.length() < 600) text.append("The quick brown fox jumps over the lazy dog. ");
+                return text.substring(0, 600);
+            default: throw new IllegalArgumentException("Unknown density: " + density);
+        }
+    }
+
+    static int width(String resolution) {
+        return Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+    }
+
+    static int height(String resolution) {
+        return Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+    }
+}
@@ -0,0 +1,59 @@
+package com.qrscanner.benchmarks;
+
+import com.google.zxing.WriterException;
+import com.qrscanner.QRProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link QRProcessor#decodeQRCode} on camera-sized frames, across resolutions,
+ * code densities and frames with and without a code. Miss frames matter as much
+ * as hits: most live frames contain no code and run through every fallback tier.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"low", "medium", "high"})
+    public String density;
+
+    @Param({"hit", "miss"})
+    public String frame;
+
+    private QRProcessor processor;
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() throws WriterException {
+        processor = new QRProcessor(null);
+        String payload = "hit".equals(frame) ? BenchmarkImages.payload(density) : null;
+        image = BenchmarkImages.frame(processor, BenchmarkImages.width(resolution), BenchmarkImages.height(resolution), payload);
+        if ("hit".equals(frame) && !payload.equals(processor.decodeQRCode(image))) {
+            throw new IllegalStateException("Benchmark frame does not decode: " + resolution + " " + density);
+        }
+    }
+
+    @Benchmark
+    public String decode() {
+        return processor.decodeQRCode(image);
+    }
+}
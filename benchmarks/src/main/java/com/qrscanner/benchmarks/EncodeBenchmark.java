@@ -0,0 +1,44 @@
+package com.qrscanner.benchmarks;
+
+import com.google.zxing.WriterException;
+import com.qrscanner.QRProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/** {@link QRProcessor#generateQRCodeImage}, which also drives the live preview of the export dialog. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodeBenchmark {
+    @Param({"low", "medium", "high"})
+    public String density;
+
+    private QRProcessor processor;
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        processor = new QRProcessor(null);
+        payload = BenchmarkImages.payload(density);
+    }
+
+    @Benchmark
+    public BufferedImage generate() throws WriterException {
+        return processor.generateQRCodeImage(payload);
+    }
+}
@@ -0,0 +1,79 @@
+package com.qrscanner.benchmarks;
+
+import com.qrscanner.QRProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification and parsing of decoded payloads: {@link QRProcessor#determineQRType}
+ * for every payload kind, plus the WiFi and vCard parsers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadBenchmark {
+    // Escaped separators exercise the slow path of the WiFi parser.
+    private static final String WIFI = "WIFI:T:WPA;S:My\\;Home\\:Net;P:p4ss\\\\word;H:true;;";
+    private static final String VCARD = "BEGIN:VCARD\nVERSION:3.0\nN:Doe;Jane\nFN:Jane Doe\nORG:Example Ltd\n"
+        + "TEL;TYPE=CELL:+1 555 0100\nEMAIL;TYPE=INTERNET:jane.doe@example.com\nEND:VCARD";
+
+    private QRProcessor processor;
+
+    /** One sample payload of each kind {@link QRProcessor#determineQRType} tells apart. */
+    @State(Scope.Thread)
+    public static class Payload {
+        @Param({"wifi", "vcard", "url", "www", "geo", "email", "sms", "text"})
+        public String kind;
+
+        String content;
+
+        @Setup
+        public void setUp() {
+            switch (kind) {
+                case "wifi": content = WIFI; break;
+                case "vcard": content = VCARD; break;
+                case "url": content = "https://example.com/path?query=value#fragment"; break;
+                case "www": content = "www.example.com"; break;
+                case "geo": content = "geo:51.5007,-0.1246"; break;
+                case "email": content = "mailto:jane.doe@example.com?subject=Hello"; break;
+                case "sms": content = "SMSTO:+15550100:Hello there"; break;
+                default: content = "Plain text that matches none of the structured formats."; break;
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        processor = new QRProcessor(null);
+    }
+
+    @Benchmark
+    public QRProcessor.QRCodeType determineType(Payload payload) {
+        return processor.determineQRType(payload.content);
+    }
+
+    @Benchmark
+    public QRProcessor.WiFiCredentials parseWiFi() {
+        return processor.parseWiFiQR(WIFI);
+    }
+
+    @Benchmark
+    public Map<String, String> parseVCard() {
+        return processor.parseVCard(VCARD);
+    }
+}
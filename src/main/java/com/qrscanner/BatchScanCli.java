@@ -0,0 +1,279 @@
+package com.qrscanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Headless batch scanner: decodes every image and PDF named on the command line
+ * with a {@link BatchScanner} and streams the results to standard output as
+ * JSON Lines, in the order files finish.
+ * <p>
+ * Arguments may be files, directories (scanned recursively for supported files) or
+ * glob patterns such as {@code 'dumps/**.pdf'}, quoted so the shell leaves them alone.
+ * Each code found is one line with {@code file}, {@code page} (1-based, {@code null} for images),
+ * {@code text}, {@code type}, {@code codes} (the file's total) and {@code millis} (the
+ * file's scan time). A file without codes gives one line with {@code "codes":0}, and an
+ * unreadable file one line with an {@code error}. Lines also carry {@code cached}, set when
+ * the file was answered from the {@link DecodeCache}, which is shared with the desktop
+ * application unless {@code --cache} names another file. A summary goes to standard error.
+ * <p>
+ * Usage: {@code java -jar qr-wifi-scanner.jar scan [--threads=N] [--cache=FILE|--no-cache]
+ * [--cache-size=MB] <file|dir|glob>...}, or {@code scan --watch [--threads=N] <dir>...} to keep
+ * scanning files as they arrive in the directories until the process is stopped.
+ */
+public class BatchScanCli {
+    private final QRProcessor qrProcessor;
+    private final PrintStream out;
+    private int filesScanned;
+    private int filesWithCodes;
+    private int codesFound;
+    private int errors;
+    private int filesCached;
+    private DecodeCache decodeCache;
+
+    public BatchScanCli(QRProcessor qrProcessor, PrintStream out) {
+        this.qrProcessor = qrProcessor;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        if (System.getProperty("java.awt.headless") == null) System.setProperty("java.awt.headless", "true");
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path cacheFile = DecodeCache.defaultPath();
+        long cacheMegabytes = 64;
+        boolean watch = false;
+        List<String> targets = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = positiveValue(arg, "--threads=");
+            } else if (arg.startsWith("--cache=")) {
+                cacheFile = Paths.get(arg.substring("--cache=".length()));
+            } else if (arg.equals("--watch")) {
+                watch = true;
+            } else if (arg.equals("--no-cache")) {
+                cacheFile = null;
+            } else if (arg.startsWith("--cache-size=")) {
+                cacheMegabytes = positiveValue(arg, "--cache-size=");
+            } else if (arg.equals("--help") || arg.equals("-h")) {
+                printUsage();
+                return;
+            } else if (arg.startsWith("--")) {
+                System.err.println("Unrecognised option: " + arg);
+                printUsage();
+                System.exit(2);
+            } else {
+                targets.add(arg);
+            }
+        }
+        if (targets.isEmpty()) {
+            printUsage();
+            System.exit(2);
+        }
+        try {
+            BatchScanCli cli = new BatchScanCli(new QRProcessor(null), System.out);
+            if (cacheFile != null) {
+                cli.setDecodeCache(DecodeCache.open(cacheFile, FileScanner.cacheContext(), cacheMegabytes * 1024 * 1024));
+            }
+            if (watch) {
+                cli.watch(targets, threads);
+                return;
+            }
+            int errors = cli.run(targets, threads);
+            System.exit(errors == 0 ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println("Batch scan failed: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(130);
+        }
+    }
+
+    /** The positive number after {@code prefix} in {@code arg}; anything else prints the usage and exits. */
+    private static int positiveValue(String arg, String prefix) {
+        try {
+            int value = Integer.parseInt(arg.substring(prefix.length()));
+            if (value > 0) return value;
+        } catch (NumberFormatException e) {
+            // Reported below, like a zero or negative value
+        }
+        System.err.println("Invalid option value: " + arg);
+        printUsage();
+        System.exit(2);
+        return -1;
+    }
+
+    /** Answers unchanged files from {@code cache} and saves it after the run; {@code null} scans everything. */
+    public void setDecodeCache(DecodeCache cache) {
+        this.decodeCache = cache;
+    }
+
+    /**
+     * Scans every file the targets expand to and prints results as they complete.
+     * @return number of files that could not be scanned.
+     */
+    public int run(List<String> targets, int threads) throws IOException, InterruptedException {
+        for (String target : targets) {
+            if (indexOfGlob(target) < 0 && !Files.exists(Paths.get(target))) {
+                throw new IOException("No such file or directory: " + target);
+            }
+        }
+        long started = System.nanoTime();
+        BatchScanner scanner = new BatchScanner(qrProcessor, BatchScanner.DEFAULT_READER_THREADS, threads);
+        scanner.setDecodeCache(decodeCache);
+        try (TargetIterator files = new TargetIterator(targets)) {
+            scanner.start(files, new BatchScanner.Listener() {
+                @Override
+                public void fileScanned(BatchScanner.FileResult result) { print(result); }
+                @Override
+                public void batchFinished(boolean cancelled) { }
+            });
+            scanner.awaitCompletion(Long.MAX_VALUE, TimeUnit.DAYS);
+        } finally {
+            scanner.cancel();
+        }
+        System.err.printf("Scanned %d file(s) in %.1f s: %d code(s) in %d file(s), %d error(s), %d unchanged%n",
+            filesScanned, (System.nanoTime() - started) / 1e9, codesFound, filesWithCodes, errors, filesCached);
+        return errors;
+    }
+
+    /** Prints a line per file written to the directories from now on; blocks until the process is stopped. */
+    public void watch(List<String> directories, int threads) throws IOException, InterruptedException {
+        List<Path> folders = new ArrayList<>();
+        for (String directory : directories) {
+            Path folder = Paths.get(directory);
+            if (!Files.isDirectory(folder)) throw new IOException("Not a directory: " + directory);
+            folders.add(folder);
+        }
+        HotFolderWatcher watcher = new HotFolderWatcher(qrProcessor, threads, new BatchScanner.Listener() {
+            @Override
+            public void fileScanned(BatchScanner.FileResult result) { print(result); }
+            @Override
+            public void batchFinished(boolean cancelled) { }
+        });
+        watcher.setDecodeCache(decodeCache);
+        Runtime.getRuntime().addShutdownHook(new Thread(watcher::stop, "qr-hot-folder-shutdown"));
+        watcher.start(folders);
+        System.err.println("Watching " + folders.size() + " folder(s); stop with Ctrl+C");
+        Thread.currentThread().join();
+    }
+
+    /** Called on the worker that finished the file; one file's lines are written together. */
+    private synchronized void print(BatchScanner.FileResult outcome) {
+        String path = outcome.getFile() != null ? outcome.getFile().getPath() : null;
+        List<DecodeResult> results = outcome.getResults();
+        if (outcome.getFile() != null) filesScanned++;
+        if (outcome.isCached()) filesCached++;
+        if (outcome.isFailed()) {
+            errors++;
+            out.println(new JsonLine().put("file", path).put("error", outcome.getError()));
+        } else if (results.isEmpty()) {
+            out.println(new JsonLine().put("file", path).put("codes", 0).put("millis", outcome.getMillis())
+                .put("cached", outcome.isCached()));
+        }
+        // An archive with an unreadable entry still reports the codes in the others.
+        if (!results.isEmpty()) {
+            filesWithCodes++;
+            codesFound += results.size();
+            for (DecodeResult result : results) {
+                JsonLine json = new JsonLine().put("file", path);
+                if (result.getPage() >= 0) json.put("page", result.getPage() + 1);
+                else json.put("page", (String) null);
+                json.put("entry", result.getEntry());
+                out.println(json.put("text", result.getText())
+                    .put("type", qrProcessor.determineQRType(result.getText()).name())
+                    .put("codes", results.size())
+                    .put("millis", outcome.getMillis())
+                    .put("cached", outcome.isCached()));
+            }
+        }
+        out.flush();
+    }
+
+    /** Expands a file, directory or glob pattern into the files to scan, in a stable order. */
+    static Stream<Path> expand(String target) throws IOException {
+        int glob = indexOfGlob(target);
+        if (glob < 0) {
+            Path path = Paths.get(target);
+            if (Files.isDirectory(path)) {
+                return Files.walk(path).filter(Files::isRegularFile).filter(FileScanner::isSupported).sorted();
+            }
+            if (!Files.exists(path)) throw new IOException("No such file or directory: " + target);
+            return Stream.of(path);
+        }
+        // Walk from the deepest directory before the first wildcard and match the rest.
+        int separator = Math.max(target.lastIndexOf('/', glob), target.lastIndexOf(File.separatorChar, glob));
+        Path base = Paths.get(separator < 0 ? "." : target.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + target);
+        boolean relativeToCurrent = separator < 0;
+        return Files.walk(base)
+            .filter(Files::isRegularFile)
+            .filter(path -> matcher.matches(relativeToCurrent ? base.relativize(path) : path))
+            .filter(FileScanner::isSupported)
+            .sorted();
+    }
+
+    private static int indexOfGlob(String target) {
+        for (int i = 0; i < target.length(); i++) {
+            if ("*?[{".indexOf(target.charAt(i)) >= 0) return i;
+        }
+        return -1;
+    }
+
+    /** Walks the targets one after another, so the first files are scanned while later directories are still listed. */
+    private static class TargetIterator implements Iterator<File>, AutoCloseable {
+        private final Iterator<String> targets;
+        private Stream<Path> current;
+        private Iterator<Path> paths = Collections.emptyIterator();
+
+        TargetIterator(List<String> targets) {
+            this.targets = targets.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!paths.hasNext() && targets.hasNext()) {
+                close();
+                try {
+                    current = expand(targets.next());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                paths = current.iterator();
+            }
+            return paths.hasNext();
+        }
+
+        @Override
+        public File next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return paths.next().toFile();
+        }
+
+        @Override
+        public void close() {
+            if (current != null) current.close();
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: scan [--threads=N] [--cache=FILE|--no-cache] [--cache-size=MB] <file|directory|glob>...");
+        System.err.println("       scan --watch [--threads=N] [--cache=FILE|--no-cache] <directory>...");
+        System.err.println("Scans images (" + String.join(", ", FileScanner.SUPPORTED_EXTENSIONS) + ") for QR codes"
+            + " and prints one JSON line per code found.");
+    }
+}
@@ -0,0 +1,169 @@
+package com.qrscanner;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link BatchScanner} over the selected files and fills a table with each file's
+ * codes as soon as it finishes, with progress, throughput and an estimate of the time left.
+ * Cancelling or closing the dialog stops the batch; codes found so far are still kept.
+ */
+public class BatchScanDialog extends JDialog {
+    private final QRProcessor qrProcessor;
+    private final BatchScanner scanner;
+    private final List<File> files;
+    private final Consumer<List<DecodeResult>> onFinished;
+    private final DefaultTableModel tableModel;
+    private final List<DecodeResult> allResults = new ArrayList<>();
+    private final JProgressBar progressBar;
+    private final JLabel progressLabel = new JLabel(" ");
+    private final JButton cancelButton = new JButton("Cancel");
+    private long startedNanos;
+    private int filesDone;
+    private int filesWithCodes;
+    private int errors;
+    private int filesCached;
+    private boolean finished;
+
+    /**
+     * @param decodeCache answers unchanged files without decoding them; may be {@code null}.
+     * @param onFinished receives every code found, once the batch ends or is cancelled; called on the EDT.
+     */
+    public BatchScanDialog(JFrame parent, QRProcessor qrProcessor, File[] files, int decoderThreads,
+                           DecodeCache decodeCache, Consumer<List<DecodeResult>> onFinished) {
+        super(parent, "Batch Scan", false);
+        this.qrProcessor = qrProcessor;
+        this.files = Arrays.asList(files);
+        this.onFinished = onFinished;
+        this.scanner = new BatchScanner(qrProcessor, BatchScanner.DEFAULT_READER_THREADS, decoderThreads);
+        this.scanner.setDecodeCache(decodeCache);
+        this.tableModel = new DefaultTableModel(new String[]{"File", "Page", "Type", "Content", "Time (ms)"}, 0);
+        this.progressBar = new JProgressBar(0, files.length);
+        initializeUI();
+    }
+
+    private void initializeUI() {
+        setLayout(new BorderLayout());
+        setSize(800, 450);
+        setLocationRelativeTo(getOwner());
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) { cancelOrClose(); }
+        });
+
+        JTable resultsTable = new JTable(tableModel);
+        resultsTable.setEnabled(false); // Make table read-only
+        resultsTable.getColumnModel().getColumn(0).setPreferredWidth(180);
+        resultsTable.getColumnModel().getColumn(1).setPreferredWidth(40);
+        resultsTable.getColumnModel().getColumn(2).setPreferredWidth(70);
+        resultsTable.getColumnModel().getColumn(3).setPreferredWidth(400);
+        resultsTable.getColumnModel().getColumn(4).setPreferredWidth(70);
+        add(new JScrollPane(resultsTable), BorderLayout.CENTER);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 5));
+        panel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        progressBar.setStringPainted(true);
+        panel.add(progressBar, BorderLayout.NORTH);
+        panel.add(progressLabel, BorderLayout.CENTER);
+        cancelButton.addActionListener(e -> cancelOrClose());
+        JPanel rightPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        rightPanel.add(cancelButton);
+        panel.add(rightPanel, BorderLayout.EAST);
+        add(panel, BorderLayout.SOUTH);
+    }
+
+    /** Shows the dialog and starts the batch. */
+    public void start() {
+        startedNanos = System.nanoTime();
+        updateProgress();
+        setVisible(true);
+        scanner.start(files.iterator(), new BatchScanner.Listener() {
+            @Override
+            public void fileScanned(BatchScanner.FileResult result) {
+                SwingUtilities.invokeLater(() -> addFileResult(result));
+            }
+
+            @Override
+            public void batchFinished(boolean cancelled) {
+                SwingUtilities.invokeLater(() -> finish(cancelled));
+            }
+        });
+    }
+
+    private void addFileResult(BatchScanner.FileResult result) {
+        String name = result.getFile() != null ? result.getFile().getName() : "";
+        if (result.isFailed() && result.getResults().isEmpty()) {
+            errors++;
+            tableModel.addRow(new Object[]{name, "", "", "Error: " + result.getError(), result.getMillis()});
+        } else if (result.getResults().isEmpty()) {
+            tableModel.addRow(new Object[]{name, "", "", "No QR code found", result.getMillis()});
+        } else {
+            filesWithCodes++;
+            for (DecodeResult code : result.getResults()) {
+                String page = code.getPage() >= 0 ? String.valueOf(code.getPage() + 1) : "";
+                String type = qrProcessor.determineQRType(code.getText()).name();
+                String location = code.getEntry() != null ? name + " › " + code.getEntry() : name;
+                tableModel.addRow(new Object[]{location, page, type, code.getText(), result.getMillis()});
+            }
+            allResults.addAll(result.getResults());
+        }
+        if (result.getFile() != null) filesDone++;
+        if (result.isCached()) filesCached++;
+        updateProgress();
+    }
+
+    private void updateProgress() {
+        progressBar.setValue(filesDone);
+        progressBar.setString(filesDone + " of " + files.size() + " files");
+        double seconds = (System.nanoTime() - startedNanos) / 1e9;
+        StringBuilder text = new StringBuilder();
+        text.append(allResults.size()).append(" code(s) in ").append(filesWithCodes).append(" file(s)");
+        if (errors > 0) text.append(", ").append(errors).append(" error(s)");
+        if (filesCached > 0) text.append(", ").append(filesCached).append(" unchanged");
+        if (filesDone > 0 && seconds > 0) {
+            double filesPerSecond = filesDone / seconds;
+            text.append(String.format(" · %.1f files/s", filesPerSecond));
+            if (!finished && filesDone < files.size()) {
+                text.append(" · about ").append(formatDuration((files.size() - filesDone) / filesPerSecond)).append(" left");
+            }
+        }
+        progressLabel.setText(text.toString());
+    }
+
+    private void finish(boolean cancelled) {
+        finished = true;
+        updateProgress();
+        progressLabel.setText((cancelled ? "Cancelled. " : "Done. ") + progressLabel.getText()
+            + String.format(" · %s total", formatDuration((System.nanoTime() - startedNanos) / 1e9)));
+        cancelButton.setText("Close");
+        cancelButton.setEnabled(true);
+        onFinished.accept(allResults);
+    }
+
+    private void cancelOrClose() {
+        if (finished) {
+            dispose();
+        } else {
+            cancelButton.setEnabled(false);
+            progressLabel.setText("Cancelling...");
+            scanner.cancel();
+        }
+    }
+
+    private static String formatDuration(double seconds) {
+        long total = Math.round(seconds);
+        return total >= 3600
+            ? String.format("%d:%02d:%02d", total / 3600, total / 60 % 60, total % 60)
+            : String.format("%d:%02d", total / 60, total % 60);
+    }
+}
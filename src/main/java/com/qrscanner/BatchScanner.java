@@ -0,0 +1,443 @@
+package com.qrscanner;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans many files in two overlapping stages. Reader threads load image frames, split PDFs
+ * into pages and stream ZIP archives entry by entry onto a small bounded queue while decoder
+ * threads take pages off it, so disk I/O hides behind decoding instead of alternating with it. PDF pages are rendered by the
+ * decoders themselves, which lets the pages of one large document use every core and
+ * escalate resolution only where a page misses. The queue bound keeps at most a few
+ * pages in memory however large the batch is.
+ * <p>
+ * Each file is reported to the {@link Listener} once its last page is decoded, on whichever
+ * worker finished it, so results arrive in completion order rather than input order.
+ * A scanner runs one batch; create a new one for the next.
+ */
+public class BatchScanner {
+    /** Readers needed to keep decoders fed; reading is mostly waiting on the disk. */
+    public static final int DEFAULT_READER_THREADS = 2;
+
+    private final FileScanner fileScanner;
+    private final int readerThreads;
+    private final int decoderThreads;
+    private final BlockingQueue<PageTask> pages;
+    private final DecodeDeadline deadline = DecodeDeadline.unbounded();
+    private final List<Thread> threads = new ArrayList<>();
+    private final Object fileLock = new Object();
+    private final AtomicInteger readersRunning = new AtomicInteger();
+    private final AtomicInteger decodersFinished = new AtomicInteger();
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private volatile boolean cancelled = false;
+    private volatile DecodeCache decodeCache;
+    private Iterator<File> files;
+    private Listener listener;
+
+    /** Receives per-file results and the end of the batch; called from worker threads. */
+    public interface Listener {
+        void fileScanned(FileResult result);
+        /** Called once, after the last file has been reported. */
+        void batchFinished(boolean cancelled);
+    }
+
+    /** Codes found in one file, or why it could not be read. */
+    public static class FileResult {
+        private final File file;
+        private final List<DecodeResult> results;
+        private final String error;
+        private final long millis;
+        private final boolean cached;
+
+        FileResult(File file, List<DecodeResult> results, String error, long millis, boolean cached) {
+            this.file = file;
+            this.results = results;
+            this.error = error;
+            this.millis = millis;
+            this.cached = cached;
+        }
+
+        public File getFile() { return file; }
+        /** Distinct codes found, tagged with their page and archive entry where there is one. */
+        public List<DecodeResult> getResults() { return results; }
+        /** Read error, or {@code null} if the file was scanned. */
+        public String getError() { return error; }
+        public boolean isFailed() { return error != null; }
+        /** Time from the first read of the file to its last decoded page. */
+        public long getMillis() { return millis; }
+        /** Whether the results came from the {@link DecodeCache} rather than a scan. */
+        public boolean isCached() { return cached; }
+    }
+
+    public BatchScanner(QRProcessor qrProcessor, int readerThreads, int decoderThreads) {
+        this.fileScanner = new FileScanner(qrProcessor);
+        this.readerThreads = Math.max(1, readerThreads);
+        this.decoderThreads = Math.max(1, decoderThreads);
+        // One page waiting per decoder is enough to keep them busy; more only costs memory.
+        this.pages = new ArrayBlockingQueue<>(this.decoderThreads);
+    }
+
+    /** Starts scanning {@code files} in the background; the iterator is drained by the reader threads. */
+    public synchronized void start(Iterator<File> files, Listener listener) {
+        if (this.listener != null) throw new IllegalStateException("Batch already started");
+        this.files = files;
+        this.listener = listener;
+        readersRunning.set(readerThreads);
+        for (int i = 1; i <= readerThreads; i++) threads.add(newThread(this::readLoop, "qr-batch-reader-" + i));
+        for (int i = 1; i <= decoderThreads; i++) threads.add(newThread(this::decodeLoop, "qr-batch-decoder-" + i));
+        threads.forEach(Thread::start);
+    }
+
+    /**
+     * Answers files scanned before from {@code cache} and remembers the rest. Only the hash is
+     * read for a cached file, and the cache is saved once the batch ends. Set before {@link #start}.
+     */
+    public void setDecodeCache(DecodeCache cache) {
+        this.decodeCache = cache;
+    }
+
+    /**
+     * Stops the batch: no further files are read, queued pages are discarded and in-flight
+     * decodes give up after their current tier. {@link Listener#batchFinished} still follows.
+     */
+    public synchronized void cancel() {
+        if (cancelled) return;
+        cancelled = true;
+        deadline.cancel();
+        threads.forEach(Thread::interrupt);
+    }
+
+    public boolean isCancelled() { return cancelled; }
+
+    /** @return {@code true} if the batch finished, and its listener was told, within the timeout. */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    private void readLoop() {
+        try {
+            File file;
+            while (!cancelled && (file = nextFile()) != null) read(file);
+        } finally {
+            if (readersRunning.decrementAndGet() == 0) {
+                // Wake every decoder with an end marker once nothing more can be queued.
+                for (int i = 0; i < decoderThreads; i++) putUninterruptibly(PageTask.END);
+            }
+        }
+    }
+
+    private File nextFile() {
+        synchronized (fileLock) {
+            try {
+                return files.hasNext() ? files.next() : null;
+            } catch (RuntimeException e) {
+                // A directory walk that fails part way ends the batch but is still reported.
+                files = Collections.emptyIterator();
+                listener.fileScanned(new FileResult(null, Collections.emptyList(), String.valueOf(e.getMessage()), 0, false));
+                return null;
+            }
+        }
+    }
+
+    private void read(File file) {
+        FileJob job = new FileJob(file);
+        try {
+            DecodeCache cache = decodeCache;
+            if (cache != null) {
+                job.key = cache.keyOf(file);
+                List<DecodeResult> cached = cache.get(job.key);
+                if (cached != null) {
+                    job.cached = true;
+                    job.add(cached);
+                    job.pageDone();
+                    return;
+                }
+            }
+            if (FileScanner.isArchive(file)) {
+                fileScanner.readArchive(file, (entry, content) -> readEntry(job, entry, content));
+            } else if (FileScanner.isPdf(file)) {
+                queuePages(job, null, file, fileScanner.countPages(file));
+            } else {
+                fileScanner.readFrames(file, new FrameConsumer(job, null) {
+                    @Override
+                    public void largeFrame(int page, ImageReader reader) throws InterruptedException {
+                        // Left to a decoder to read again in tiles, so it never holds the whole frame.
+                        queue(job, null, page, null, null);
+                    }
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            job.error = String.valueOf(e.getMessage());
+        } catch (InterruptedException e) {
+            job.error = "Cancelled";
+        }
+        // The reader holds one count of its own until every page has been queued.
+        job.pageDone();
+    }
+
+    /**
+     * Queues one archive entry. A PDF is spooled to a temporary file for the decoders to render
+     * from, which is deleted once the archive is done; images are read frame by frame like loose
+     * files, except that large frames are decoded here because the entry cannot be read again later.
+     */
+    private void readEntry(FileJob job, String entry, InputStream content) throws InterruptedException {
+        try {
+            if (FileScanner.isPdfName(entry)) {
+                File pdf = FileScanner.spoolEntry(content);
+                job.spooled.add(pdf);
+                queuePages(job, entry, pdf, fileScanner.countPages(pdf));
+            } else {
+                try (ImageInputStream input = FileScanner.openEntryImage(content)) {
+                    fileScanner.readFrames(input, entry, new FrameConsumer(job, entry) {
+                        @Override
+                        public void largeFrame(int page, ImageReader reader) throws IOException {
+                            job.add(entry, fileScanner.scanLargeFrame(reader, page, deadline, job.event));
+                        }
+                    });
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // One unreadable entry does not end the archive.
+            job.error = entry + ": " + e.getMessage();
+        }
+    }
+
+    /** Pages are rendered by the decoders, each at the lowest resolution that finds a code. */
+    private void queuePages(FileJob job, String entry, File pdf, int pageCount) throws InterruptedException {
+        for (int page = 0; page < pageCount && !cancelled; page++) queue(job, entry, page, null, pdf);
+    }
+
+    private void queue(FileJob job, String entry, int page, BufferedImage image, File pdf) throws InterruptedException {
+        job.pending.incrementAndGet();
+        try {
+            pages.put(new PageTask(job, entry, page, image, pdf));
+        } catch (InterruptedException e) {
+            job.pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void decodeLoop() {
+        OpenDocuments documents = new OpenDocuments(readerThreads + 1);
+        try {
+            while (true) {
+                PageTask task = takeUninterruptibly();
+                if (task == PageTask.END) break;
+                if (cancelled) {
+                    task.job.error = "Cancelled";
+                } else {
+                    try {
+                        decode(task, documents);
+                    } catch (IOException | RuntimeException e) {
+                        task.job.error = String.valueOf(e.getMessage());
+                    }
+                }
+                task.job.pageDone();
+            }
+        } finally {
+            documents.close();
+            if (decodersFinished.incrementAndGet() == decoderThreads) {
+                saveCache();
+                try {
+                    listener.batchFinished(cancelled);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }
+    }
+
+    private void decode(PageTask task, OpenDocuments documents) throws IOException {
+        FileJob job = task.job;
+        if (task.image != null) {
+            job.add(task.entry, fileScanner.decodeFrame(task.page, task.image, deadline, job.event));
+        } else if (task.pdf != null) {
+            job.add(task.entry, fileScanner.scanPage(documents.get(task.pdf), task.page, deadline, job.event));
+        } else {
+            job.add(task.entry, fileScanner.scanImage(job.file, task.page, deadline, job.event));
+        }
+    }
+
+    private void saveCache() {
+        if (decodeCache == null) return;
+        try {
+            decodeCache.save();
+        } catch (IOException e) {
+            System.err.println("Failed to save decode cache: " + e.getMessage());
+        }
+    }
+
+    private PageTask takeUninterruptibly() {
+        while (true) {
+            try {
+                return pages.take();
+            } catch (InterruptedException e) {
+                // Cancellation only interrupts; decoders keep draining until the end marker.
+            }
+        }
+    }
+
+    private void putUninterruptibly(PageTask task) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                pages.put(task);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /** Pages of one file still being read or decoded, and the codes found so far. */
+    private class FileJob {
+        final File file;
+        final long started = System.nanoTime();
+        final FileScanEvent event = new FileScanEvent();
+        final List<DecodeResult> results = new ArrayList<>();
+        /** PDF entries of an archive copied out for the decoders; deleted with the job. */
+        final List<File> spooled = new CopyOnWriteArrayList<>();
+        final AtomicInteger pending = new AtomicInteger(1);
+        volatile String error;
+        DecodeCache.Key key;
+        boolean cached;
+
+        FileJob(File file) {
+            this.file = file;
+            event.begin();
+        }
+
+        synchronized void add(List<DecodeResult> decoded) {
+            results.addAll(decoded);
+        }
+
+        /** @param entry the archive entry the codes came from, or {@code null} for the file itself. */
+        synchronized void add(String entry, List<DecodeResult> decoded) {
+            for (DecodeResult result : decoded) results.add(entry != null ? result.inEntry(entry) : result);
+        }
+
+        void pageDone() {
+            if (pending.decrementAndGet() != 0) return;
+            spooled.forEach(FileScanner::deleteSpooled);
+            List<DecodeResult> distinct;
+            synchronized (this) {
+                distinct = DecodeResult.distinctByText(results);
+                synchronized (event) {
+                    event.cached = cached;
+                    FileScanner.commitEvent(event, file, results);
+                }
+            }
+            // Only complete scans are remembered; a cancelled decode may have missed codes.
+            if (key != null && !cached && error == null && !deadline.isCancelled()) decodeCache.put(key, distinct);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            listener.fileScanned(new FileResult(file, distinct, error, millis, cached));
+        }
+    }
+
+    /** Queues the small frames of an image for the decoders; large frames are left to subclasses. */
+    private abstract class FrameConsumer implements FileScanner.FrameConsumer {
+        private final FileJob job;
+        private final String entry;
+
+        FrameConsumer(FileJob job, String entry) {
+            this.job = job;
+            this.entry = entry;
+        }
+
+        @Override
+        public void frame(int page, BufferedImage image) throws InterruptedException {
+            queue(job, entry, page, image, null);
+        }
+    }
+
+    /**
+     * The PDFs a decoder thread has open, least recently used first. PDFBox documents are not
+     * thread-safe, so every decoder keeps its own. Each reader queues the pages of one document
+     * at a time, so keeping one more document than there are readers lets a decoder move between
+     * interleaved documents without parsing any of them twice.
+     */
+    private static class OpenDocuments {
+        private final int capacity;
+        private final Map<File, PDDocument> documents = new LinkedHashMap<>(16, 0.75f, true);
+
+        OpenDocuments(int capacity) {
+            this.capacity = Math.max(1, capacity);
+        }
+
+        /** @param wanted a PDF file, or the temporary copy of one read out of an archive. */
+        PDDocument get(File wanted) throws IOException {
+            PDDocument document = documents.get(wanted);
+            if (document == null) {
+                document = FileScanner.loadPdf(wanted);
+                if (documents.size() >= capacity) {
+                    Iterator<PDDocument> eldest = documents.values().iterator();
+                    close(eldest.next());
+                    eldest.remove();
+                }
+                documents.put(wanted, document);
+            }
+            return document;
+        }
+
+        void close() {
+            documents.values().forEach(OpenDocuments::close);
+            documents.clear();
+        }
+
+        private static void close(PDDocument document) {
+            try {
+                document.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close PDF: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A frame already read, or a large frame or PDF page for the decoder to read itself.
+     * PDF pages name their document in {@code pdf}: the file, or its temporary copy for archive entries.
+     */
+    private static class PageTask {
+        static final PageTask END = new PageTask(null, null, -1, null, null);
+
+        final FileJob job;
+        final String entry;
+        final int page;
+        final BufferedImage image;
+        final File pdf;
+
+        PageTask(FileJob job, String entry, int page, BufferedImage image, File pdf) {
+            this.job = job;
+            this.entry = entry;
+            this.page = page;
+            this.image = image;
+            this.pdf = pdf;
+        }
+    }
+}
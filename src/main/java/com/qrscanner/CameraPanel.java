@@ -5,20 +5,19 @@ import com.github.sarxos.webcam.WebcamPanel;
 import com.github.sarxos.webcam.WebcamResolution;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class CameraPanel extends JPanel {
+    private static final long MIN_SCAN_INTERVAL = 33; // ~30 frames per second
     private Webcam webcam;
     private WebcamPanel webcamPanel;
     private QRProcessor qrProcessor;
     private boolean scanning = false;
-    private final ExecutorService qrScanExecutor = Executors.newSingleThreadExecutor();
-    private volatile boolean processingQR = false;
+    private ScanPipeline scanPipeline;
     private long scanInterval = 333; // Default interval
+    private int decoderThreads = SettingsManager.defaultDecoderThreads();
+    private WebcamFrameSource frameSource;
     private JLabel statusLabel;
     private JComboBox<String> cameraSelector;
     private JLabel noImageLabel;
@@ -30,7 +29,13 @@ public class CameraPanel extends JPanel {
     }
     
     public void setScanInterval(long millis) {
-        this.scanInterval = Math.max(100, millis); // Ensure at least 100ms delay
+        this.scanInterval = Math.max(MIN_SCAN_INTERVAL, millis);
+        if (scanPipeline != null) scanPipeline.setCaptureInterval(scanInterval);
+    }
+    
+    /** Sets the number of decoder workers; takes effect the next time the camera starts. */
+    public void setDecoderThreads(int threads) {
+        this.decoderThreads = Math.max(1, threads);
     }
     
     private void initializeComponents() {
@@ -107,6 +112,7 @@ public class CameraPanel extends JPanel {
         if (selectedIndex < 0 || selectedIndex >= webcams.size()) selectedIndex = 0;
         webcam = webcams.get(selectedIndex);
         webcam.setViewSize(WebcamResolution.VGA.getSize());
+        frameSource = new WebcamFrameSource(webcam);
         webcamPanel = new WebcamPanel(webcam, false);
         webcamPanel.setFPSDisplayed(true);
         webcamPanel.setMirrored(true);
@@ -123,15 +129,17 @@ public class CameraPanel extends JPanel {
     public void stopCamera() {
         if (!scanning) return;
         scanning = false;
+        if (scanPipeline != null) scanPipeline.stop();
         if (webcamPanel != null) {
             webcamPanel.stop();
             remove(webcamPanel);
             webcamPanel = null;
         }
-        if (webcam != null && webcam.isOpen()) {
-            webcam.close();
-            webcam = null;
+        if (frameSource != null) {
+            frameSource.close();
+            frameSource = null;
         }
+        webcam = null;
         add(noImageLabel, BorderLayout.CENTER);
         statusLabel.setText("Camera stopped");
         revalidate();
@@ -139,62 +147,47 @@ public class CameraPanel extends JPanel {
     }
     
     private void startQRDetection() {
-        qrScanExecutor.execute(() -> {
-            while (scanning) {
-                if (processingQR) continue;
-                try {
-                    if (!scanning || webcam == null) break;
-                    BufferedImage image = webcam.getImage();
-                    if (image != null) {
-                        processingQR = true;
-                        processImageForQR(image);
-                    }
-                    Thread.sleep(this.scanInterval);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } finally {
-                    processingQR = false;
-                }
-            }
-        });
+        if (qrProcessor == null) return;
+        if (scanPipeline != null && scanPipeline.getSource() != frameSource) scanPipeline = null;
+        if (scanPipeline == null) {
+            scanPipeline = new ScanPipeline(qrProcessor, frameSource, this::onFrameDecoded);
+        }
+        scanPipeline.setCaptureInterval(scanInterval);
+        scanPipeline.start(decoderThreads);
     }
     
-    private void processImageForQR(BufferedImage image) {
-        if (qrProcessor == null) return;
-        String qrContent = qrProcessor.decodeQRCode(image);
-        if (qrContent != null && !qrContent.isEmpty()) {
-            SwingUtilities.invokeLater(() -> {
-                statusLabel.setText("QR Code detected!");
-                notifyQRDetected(qrContent);
-            });
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+    private void onFrameDecoded(List<DecodeResult> results) {
+        if (notifyQRDetected(results)) {
+            String status = results.size() == 1 ? "QR Code detected!" : results.size() + " QR Codes detected!";
+            SwingUtilities.invokeLater(() -> statusLabel.setText(status));
         }
     }
     
-    private void notifyQRDetected(String qrContent) {
+    private boolean notifyQRDetected(List<DecodeResult> results) {
         Component parent = SwingUtilities.getWindowAncestor(this);
-        if (parent instanceof QRScannerApp) ((QRScannerApp) parent).onQRCodeDetected(qrContent);
+        return parent instanceof QRScannerApp && ((QRScannerApp) parent).onQRCodesDetected(results, ScanSource.CAMERA);
     }
     
     public void cleanup() {
         stopCamera();
-        qrScanExecutor.shutdownNow();
+        if (scanPipeline == null) return;
+        scanPipeline.stop();
         try {
-            if (!qrScanExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                System.err.println("QR scan thread did not terminate gracefully.");
+            if (!scanPipeline.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("QR scan threads did not terminate gracefully.");
             }
         } catch (InterruptedException e) {
-            qrScanExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
     }
     
-    public void setQRProcessor(QRProcessor processor) { this.qrProcessor = processor; }
+    public void setQRProcessor(QRProcessor processor) {
+        this.qrProcessor = processor;
+        if (scanPipeline != null) {
+            scanPipeline.stop();
+            scanPipeline = null;
+        }
+    }
     public boolean isScanning() { return scanning; }
     
     @Override
@@ -0,0 +1,291 @@
+package com.qrscanner;
+
+import com.google.zxing.ResultPoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk cache of file scan results, keyed by the SHA-256 of the file's content together
+ * with a context string naming the decoder revision and every setting that changes what a
+ * file decodes to. Renaming or touching a file keeps its entry; changing a byte of it, or
+ * upgrading the decoder, does not.
+ * <p>
+ * Entries are held in memory in their binary form and in least-recently-used order, and
+ * the oldest are evicted once the total passes the size bound. {@link #save()} writes them
+ * all to one file, replacing the old one atomically; a missing, corrupt or outdated file
+ * simply starts an empty cache. Instances are thread-safe.
+ */
+public class DecodeCache {
+    private static final int MAGIC = 0x51524443; // "QRDC"
+    private static final int FORMAT_VERSION = 3;
+    private static final int KEY_BYTES = 32;
+    /** Bookkeeping per entry beyond its key and payload: the length field and map overhead. */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final Path file;
+    private final byte[] context;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private boolean dirty;
+
+    private DecodeCache(Path file, String context, long maxBytes) {
+        this.file = file;
+        this.context = context.getBytes(StandardCharsets.UTF_8);
+        this.maxBytes = maxBytes;
+    }
+
+    /** Where the application keeps its cache unless told otherwise. */
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("user.home"), ".qrscanner", "decode-cache.bin");
+    }
+
+    /**
+     * Loads the cache saved at {@code file}, if any.
+     * @param context identifies the decoder and settings; entries saved under another context never match.
+     */
+    public static DecodeCache open(Path file, String context, long maxBytes) {
+        DecodeCache cache = new DecodeCache(file, context, maxBytes);
+        if (Files.isRegularFile(file)) {
+            try {
+                cache.load();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable decode cache " + file + ": " + e.getMessage());
+                cache.entries.clear();
+                cache.sizeBytes = 0;
+            }
+        }
+        return cache;
+    }
+
+    /** Hashes the file's content under this cache's context. Costs one sequential read of the file. */
+    public Key keyOf(File source) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(context);
+        digest.update((byte) 0);
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream input = Files.newInputStream(source.toPath())) {
+            for (int read; (read = input.read(buffer)) > 0; ) digest.update(buffer, 0, read);
+        }
+        return new Key(digest.digest());
+    }
+
+    /** @return the cached results, or {@code null} if the key is not cached or its entry is unreadable. */
+    public synchronized List<DecodeResult> get(Key key) {
+        byte[] encoded = entries.get(key);
+        if (encoded != null) {
+            try {
+                List<DecodeResult> results = decode(encoded);
+                hits++;
+                return results;
+            } catch (IOException | RuntimeException e) {
+                // A corrupt entry costs a rescan of its file, not the scan itself.
+                System.err.println("Dropping unreadable decode cache entry: " + e.getMessage());
+                entries.remove(key);
+                sizeBytes -= entrySize(encoded);
+                dirty = true;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(Key key, List<DecodeResult> results) {
+        byte[] encoded = encode(results);
+        byte[] previous = entries.put(key, encoded);
+        if (previous != null) sizeBytes -= entrySize(previous);
+        sizeBytes += entrySize(encoded);
+        dirty = true;
+        evict();
+    }
+
+    /** Changes the size bound, evicting the oldest entries if the cache is now over it. */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /** Writes the cache to its file if anything changed since it was loaded or last saved. */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "decode-cache", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(entries.size());
+                // Least recently used first, so loading restores the same order.
+                for (Map.Entry<Key, byte[]> entry : entries.entrySet()) {
+                    out.write(entry.getKey().hash);
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        dirty = false;
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getSizeBytes() { return sizeBytes; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+
+    /** Every count and length is checked against what is left of the file before anything is allocated for it. */
+    private void load() throws IOException {
+        long remaining = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a decode cache");
+            if (in.readInt() != FORMAT_VERSION) return; // Written by another version; start afresh.
+            int count = in.readInt();
+            remaining -= 12;
+            if (count < 0 || count > remaining / (KEY_BYTES + 4)) throw new IOException("bad entry count " + count);
+            for (int i = 0; i < count; i++) {
+                byte[] hash = new byte[KEY_BYTES];
+                in.readFully(hash);
+                int length = in.readInt();
+                remaining -= KEY_BYTES + 4;
+                if (length < 0 || length > remaining) throw new IOException("bad entry length " + length);
+                remaining -= length;
+                if (length > maxBytes) {
+                    // Saved under a larger bound; it would be evicted straight away.
+                    skipFully(in, length);
+                    continue;
+                }
+                byte[] encoded = new byte[length];
+                in.readFully(encoded);
+                entries.put(new Key(hash), encoded);
+                sizeBytes += entrySize(encoded);
+            }
+        }
+        evict();
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        for (int skipped = 0; skipped < length; skipped++) {
+            int step = in.skipBytes(length - skipped);
+            if (step > 0) skipped += step - 1;
+            else if (in.read() < 0) throw new EOFException();
+        }
+    }
+
+    private void evict() {
+        Iterator<byte[]> oldest = entries.values().iterator();
+        while (sizeBytes > maxBytes && oldest.hasNext()) {
+            sizeBytes -= entrySize(oldest.next());
+            oldest.remove();
+            dirty = true;
+        }
+    }
+
+    private static long entrySize(byte[] encoded) {
+        return KEY_BYTES + ENTRY_OVERHEAD + encoded.length;
+    }
+
+    /** Result count, then per result its text, page, archive entry and result points. */
+    private static byte[] encode(List<DecodeResult> results) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(results.size());
+            for (DecodeResult result : results) {
+                byte[] text = result.getText().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+                out.writeInt(result.getPage());
+                out.writeBoolean(result.getEntry() != null);
+                if (result.getEntry() != null) out.writeUTF(result.getEntry());
+                ResultPoint[] points = result.getPoints();
+                int pointCount = Math.min(points.length, 255);
+                out.writeByte(pointCount);
+                for (ResultPoint point : Arrays.copyOf(points, pointCount)) {
+                    out.writeFloat(point != null ? point.getX() : Float.NaN);
+                    out.writeFloat(point != null ? point.getY() : Float.NaN);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<DecodeResult> decode(byte[] encoded) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        int count = in.readInt();
+        if (count == 0) return Collections.emptyList();
+        if (count < 0 || count > in.available()) throw new IOException("bad result count " + count);
+        List<DecodeResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = in.readInt();
+            if (length < 0 || length > in.available()) throw new IOException("bad text length " + length);
+            byte[] text = new byte[length];
+            in.readFully(text);
+            int page = in.readInt();
+            String entry = in.readBoolean() ? in.readUTF() : null;
+            ResultPoint[] points = new ResultPoint[in.readUnsignedByte()];
+            for (int p = 0; p < points.length; p++) {
+                float x = in.readFloat();
+                float y = in.readFloat();
+                points[p] = Float.isNaN(x) ? null : new ResultPoint(x, y);
+            }
+            results.add(new DecodeResult(new String(text, StandardCharsets.UTF_8), points, page, entry));
+        }
+        return results;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** Content hash of one file under a cache's context. */
+    public static final class Key {
+        private final byte[] hash;
+        private final int hashCode;
+
+        private Key(byte[] hash) {
+            this.hash = hash;
+            this.hashCode = Arrays.hashCode(hash);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(hash, ((Key) other).hash);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+    }
+}
@@ -0,0 +1,51 @@
+package com.qrscanner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget and cancellation flag for one decode call.
+ * <p>
+ * ZXing itself cannot be interrupted, so decoders poll {@link #isExpired()} between
+ * units of work (tiers, scales, tiles) and give up once the budget is spent or
+ * {@link #cancel()} has been called from another thread.
+ */
+public class DecodeDeadline {
+    private final long deadlineNanos;
+    private final boolean bounded;
+    private volatile boolean cancelled;
+
+    private DecodeDeadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    /** A deadline that expires {@code millis} milliseconds from now. */
+    public static DecodeDeadline after(long millis) {
+        return new DecodeDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), true);
+    }
+
+    /** A deadline without a time limit that can still be cancelled. */
+    public static DecodeDeadline unbounded() {
+        return new DecodeDeadline(0, false);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** @return {@code true} once the call has been cancelled or its budget has run out. */
+    public boolean isExpired() {
+        return cancelled || (bounded && System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    /** Nanoseconds left in the budget, {@link Long#MAX_VALUE} if unbounded, or 0 once expired. */
+    public long remainingNanos() {
+        if (cancelled) return 0;
+        if (!bounded) return Long.MAX_VALUE;
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+}
@@ -0,0 +1,39 @@
+package com.qrscanner;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event for one call into the {@link QRProcessor} decode API. */
+@Name("com.qrscanner.Decode")
+@Label("QR Decode")
+@Category({"QR Scanner", "Decoding"})
+@Description("Decoding of one image or camera frame")
+@StackTrace(false)
+class DecodeEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    @Description("decodeQRCode, decodeAll or decodeFrame")
+    String operation;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Tier")
+    @Description("Decoder tier that produced the last hit, empty on a miss or a tiled decode")
+    String tier;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Codes Found")
+    int codes;
+
+    @Label("Payload Type")
+    @Description("Payload types of the codes found, comma-separated")
+    String payloadType;
+}
@@ -0,0 +1,99 @@
+package com.qrscanner;
+
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One decoded QR code: its payload, where it sat in the image, for multi-page
+ * documents which page it came from, and for archives which entry.
+ */
+public class DecodeResult {
+    private final String text;
+    private final ResultPoint[] points;
+    private final int page;
+    private final String entry;
+
+    public DecodeResult(String text, ResultPoint[] points) {
+        this(text, points, -1);
+    }
+
+    public DecodeResult(String text, ResultPoint[] points, int page) {
+        this(text, points, page, null);
+    }
+
+    public DecodeResult(String text, ResultPoint[] points, int page, String entry) {
+        this.text = text;
+        this.points = points != null ? points : new ResultPoint[0];
+        this.page = page;
+        this.entry = entry;
+    }
+
+    public static DecodeResult of(Result result) {
+        return new DecodeResult(result.getText(), result.getResultPoints());
+    }
+
+    public DecodeResult onPage(int page) {
+        return new DecodeResult(text, points, page, entry);
+    }
+
+    public DecodeResult inEntry(String entry) {
+        return new DecodeResult(text, points, page, entry);
+    }
+
+    /** The same code with its points mapped from a scaled or cropped view back into the full image. */
+    public DecodeResult mapped(int scale, float offsetX, float offsetY) {
+        return new DecodeResult(text, mapPoints(points, scale, offsetX, offsetY), page, entry);
+    }
+
+    /**
+     * Maps points from a scaled or cropped view back into the full image: {@code p * scale + offset}.
+     * The one mapping used for tiles, pyramid levels and regions of interest alike; null points stay null.
+     */
+    static ResultPoint[] mapPoints(ResultPoint[] points, int scale, float offsetX, float offsetY) {
+        ResultPoint[] mapped = new ResultPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            mapped[i] = points[i] == null ? null
+                : new ResultPoint(points[i].getX() * scale + offsetX, points[i].getY() * scale + offsetY);
+        }
+        return mapped;
+    }
+
+    public String getText() { return text; }
+    public ResultPoint[] getPoints() { return points.clone(); }
+
+    /** Zero-based page or frame index, or -1 for single images. */
+    public int getPage() { return page; }
+    /** Name of the archive entry the code was found in, or {@code null} outside archives. */
+    public String getEntry() { return entry; }
+
+    /** Bounding box of the result points, or {@code null} if the decoder reported none. */
+    public Rectangle getBounds() {
+        Rectangle bounds = null;
+        for (ResultPoint point : points) {
+            if (point == null) continue;
+            Rectangle pixel = new Rectangle((int) point.getX(), (int) point.getY(), 1, 1);
+            bounds = bounds == null ? pixel : bounds.union(pixel);
+        }
+        return bounds;
+    }
+
+    /** Keeps the first result for every distinct payload, preserving order. */
+    public static List<DecodeResult> distinctByText(Collection<DecodeResult> results) {
+        Map<String, DecodeResult> distinct = new LinkedHashMap<>();
+        for (DecodeResult result : results) distinct.putIfAbsent(result.getText(), result);
+        return new ArrayList<>(distinct.values());
+    }
+
+    @Override
+    public String toString() {
+        String location = page >= 0 ? "page " + (page + 1) + ": " : "";
+        return entry != null ? entry + ", " + location + text : location + text;
+    }
+}
@@ -0,0 +1,61 @@
+package com.qrscanner;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TTL cache that decides whether a decoded payload is new enough to report.
+ * <p>
+ * Entries are keyed on content and {@link ScanSource}. Every sighting refreshes
+ * the entry, so a code held in front of the camera is reported once and stays
+ * quiet until it has been out of view for the whole window. Different codes are
+ * never held back, which is what lets the scanner keep running after a hit.
+ */
+public class DuplicateSuppressor {
+    private static final int PURGE_THRESHOLD = 256;
+
+    private final Map<String, Long> lastSeen = new ConcurrentHashMap<>();
+    private final AtomicLong suppressedCount = new AtomicLong();
+    private volatile long windowNanos;
+
+    public DuplicateSuppressor(long windowMillis) {
+        setWindow(windowMillis);
+    }
+
+    public void setWindow(long windowMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+    }
+
+    /**
+     * Records a sighting of {@code content} from {@code source}.
+     * @return {@code true} if the payload should be reported, {@code false} if it is a repeat within the window.
+     */
+    public boolean shouldReport(String content, ScanSource source) {
+        if (content == null) return false;
+        long now = System.nanoTime();
+        Long previous = lastSeen.put(source.name() + '\u0000' + content, now);
+        if (lastSeen.size() > PURGE_THRESHOLD) purgeExpired(now);
+        if (previous != null && now - previous < windowNanos) {
+            suppressedCount.incrementAndGet();
+            MetricsRegistry.getDefault().increment(MetricsRegistry.Counter.DEDUPLICATED);
+            return false;
+        }
+        return true;
+    }
+
+    /** Forgets every sighting, so the next decode of any code is reported. */
+    public void clear() {
+        lastSeen.clear();
+    }
+
+    /** Number of decodes swallowed as duplicates since startup. */
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    private void purgeExpired(long now) {
+        lastSeen.values().removeIf(seen -> now - seen >= windowNanos);
+    }
+}
@@ -0,0 +1,47 @@
+package com.qrscanner;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event for the scan of one image or PDF file. */
+@Name("com.qrscanner.FileScan")
+@Label("File Scan")
+@Category({"QR Scanner", "Files"})
+@Description("Scan of one image or PDF file for QR codes")
+@StackTrace(false)
+class FileScanEvent extends jdk.jfr.Event {
+    @Label("Path")
+    String path;
+
+    @Label("File Type")
+    String fileType;
+
+    @Label("File Size")
+    @DataAmount
+    long size;
+
+    @Label("Pages")
+    int pages;
+
+    @Label("Width")
+    @Description("Width of the image, or of the last rendered PDF page")
+    int width;
+
+    @Label("Height")
+    @Description("Height of the image, or of the last rendered PDF page")
+    int height;
+
+    @Label("Cached")
+    @Description("Results were answered from the decode cache without reading the file's pixels")
+    boolean cached;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Codes Found")
+    int codes;
+}
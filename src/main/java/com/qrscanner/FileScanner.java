@@ -0,0 +1,597 @@
+package com.qrscanner;
+
+import com.google.zxing.Result;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileCacheImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Scans image and PDF files for QR codes, for the file dialogs of {@link QRScannerApp}
+ * as well as {@link BatchScanner}. Instances hold no per-file state and
+ * may be shared between threads.
+ */
+public class FileScanner {
+    /** Lower-case extensions of the files {@link #scan} can read. */
+    public static final Set<String> SUPPORTED_EXTENSIONS =
+        Collections.unmodifiableSet(new HashSet<>(Arrays.asList("png", "jpg", "jpeg", "bmp", "gif", "tif", "tiff", "pdf", "zip")));
+    /** Bump whenever a change to decoding or reading alters what a file yields, to retire cached results. */
+    static final int DECODER_REVISION = 2;
+    /** Resolutions a PDF page is rendered at, lowest first, until one of them yields a code. */
+    static final int[] PDF_DPI_STEPS = {100, 200, 300};
+    /** Images with more pixels than this are never read whole; about 64 MB as an RGB raster. */
+    static final long LARGE_IMAGE_PIXELS = 16_000_000L;
+    /** Target size of the subsampled preview of a large image. */
+    static final long PREVIEW_PIXELS = 4_000_000L;
+    /** Full-resolution tiles of a large image, overlapping so a code on a tile edge is whole in a neighbour. */
+    static final int TILE_SIZE = 2048;
+    private static final int TILE_OVERLAP = 512;
+    /** Content stream operators that only save, transform and restore state around drawn images. */
+    private static final Set<String> IMAGE_PAGE_OPERATORS =
+        Collections.unmodifiableSet(new HashSet<>(Arrays.asList("q", "Q", "cm", "gs", "Do")));
+    /** Parsed PDF objects kept on the heap per open document before PDFBox spills to a scratch file. */
+    private static final long PDF_MAIN_MEMORY_BYTES = 8L * 1024 * 1024;
+
+    private final QRProcessor qrProcessor;
+    private volatile DecodeCache decodeCache;
+    private volatile int pageParallelism = Runtime.getRuntime().availableProcessors();
+
+    public FileScanner(QRProcessor qrProcessor) {
+        this.qrProcessor = qrProcessor;
+    }
+
+    public static boolean isSupported(Path path) {
+        return SUPPORTED_EXTENSIONS.contains(extensionOf(path.getFileName().toString()));
+    }
+
+    public static boolean isPdf(File file) {
+        return isPdfName(file.getName());
+    }
+
+    static boolean isPdfName(String name) {
+        return "pdf".equals(extensionOf(name));
+    }
+
+    public static boolean isArchive(File file) {
+        return "zip".equals(extensionOf(file.getName()));
+    }
+
+    /** Whether an archive entry is scanned: any supported file but another archive. */
+    public static boolean isSupportedEntry(String name) {
+        String extension = extensionOf(name);
+        return !"zip".equals(extension) && SUPPORTED_EXTENSIONS.contains(extension);
+    }
+
+    /**
+     * Decodes every QR code in an image, on every page of a PDF or multi-frame image, or in
+     * every entry of a ZIP archive. PDF pages are spread over up to {@link #setPageParallelism}
+     * threads, each with its own open document.
+     * @return distinct results; they carry their page number and archive entry where there is one.
+     * @throws IOException if the file cannot be read or is not a supported image.
+     */
+    public List<DecodeResult> scan(File file) throws IOException {
+        FileScanEvent event = new FileScanEvent();
+        event.begin();
+        List<DecodeResult> results = new ArrayList<>();
+        DecodeCache cache = decodeCache;
+        DecodeCache.Key key = cache != null ? cache.keyOf(file) : null;
+        if (key != null) {
+            List<DecodeResult> cached = cache.get(key);
+            if (cached != null) {
+                event.cached = true;
+                commitEvent(event, file, cached);
+                return cached;
+            }
+        }
+        try {
+            if (isArchive(file)) {
+                results.addAll(scanArchive(file, event));
+            } else if (isPdf(file)) {
+                results.addAll(scanPdf(file, event));
+            } else {
+                try (ImageInputStream input = openImage(file)) {
+                    results.addAll(scanFrames(input, file.getName(), DecodeDeadline.unbounded(), event));
+                }
+            }
+            List<DecodeResult> distinct = DecodeResult.distinctByText(results);
+            if (key != null) cache.put(key, distinct);
+            return distinct;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Scan of " + file.getName() + " was interrupted");
+        } finally {
+            commitEvent(event, file, results);
+        }
+    }
+
+    /** Answers {@link #scan} for files scanned before from {@code cache}; {@code null} turns caching off. */
+    public void setDecodeCache(DecodeCache cache) {
+        this.decodeCache = cache;
+    }
+
+    /**
+     * Everything besides a file's content that decides what it decodes to, for {@link DecodeCache}
+     * keys: the decoder revision, the ZXing version and the rendering and tiling parameters.
+     */
+    public static String cacheContext() {
+        String zxing = Result.class.getPackage().getImplementationVersion();
+        return "decoder=" + DECODER_REVISION + ";zxing=" + (zxing != null ? zxing : "unknown")
+            + ";dpi=" + Arrays.toString(PDF_DPI_STEPS) + ";large=" + LARGE_IMAGE_PIXELS
+            + ";preview=" + PREVIEW_PIXELS + ";tile=" + TILE_SIZE + "/" + TILE_OVERLAP;
+    }
+
+    /** Upper bound on threads used for the pages of one PDF; defaults to the number of cores. */
+    public void setPageParallelism(int threads) {
+        this.pageParallelism = Math.max(1, threads);
+    }
+
+    /** Receives the frames of an image as they are read: every page of a TIFF, every frame of a GIF. */
+    public interface FrameConsumer {
+        /**
+         * A frame small enough to hold whole.
+         * @param page frame index for multi-frame images, -1 for a single image.
+         */
+        void frame(int page, BufferedImage image) throws IOException, InterruptedException;
+
+        /**
+         * A frame over {@link #LARGE_IMAGE_PIXELS}, not read yet. {@link #scanLargeFrame} can
+         * decode it from {@code reader} before this returns, or the caller can come back to
+         * it later with {@link #scanImage} if the image is a file.
+         */
+        void largeFrame(int page, ImageReader reader) throws IOException, InterruptedException;
+    }
+
+    /** Receives the supported entries of an archive in order; {@code content} ends with the entry. */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(String entry, InputStream content) throws InterruptedException;
+    }
+
+    /** Reads every frame of an image file in order, with one {@link ImageReader}. */
+    public void readFrames(File file, FrameConsumer consumer) throws IOException, InterruptedException {
+        try (ImageInputStream input = openImage(file)) {
+            readFrames(input, file.getName(), consumer);
+        }
+    }
+
+    /** Like {@link #readFrames(File, FrameConsumer)}, for images that are not files; {@code input} is left open. */
+    public void readFrames(ImageInputStream input, String name, FrameConsumer consumer) throws IOException, InterruptedException {
+        ImageReader reader = readerFor(input, name);
+        try {
+            int frames = reader.getNumImages(true);
+            for (int i = 0; i < frames; i++) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                int page = frames > 1 ? i : -1;
+                if ((long) reader.getWidth(i) * reader.getHeight(i) > LARGE_IMAGE_PIXELS) {
+                    consumer.largeFrame(page, reader);
+                } else {
+                    consumer.frame(page, reader.read(i));
+                }
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Streams the entries of a ZIP archive that {@link #isSupportedEntry} accepts, without
+     * extracting them. Nested archives are skipped.
+     */
+    public void readArchive(File file, EntryConsumer consumer) throws IOException, InterruptedException {
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            InputStream entryContent = new FilterInputStream(zip) {
+                @Override
+                public void close() {
+                    // Closing an entry's reader must not close the archive.
+                }
+            };
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                if (!entry.isDirectory() && isSupportedEntry(entry.getName())) consumer.accept(entry.getName(), entryContent);
+            }
+        }
+    }
+
+    /** Decodes one frame of an image file, reading it in tiles if it is over {@link #LARGE_IMAGE_PIXELS}. */
+    public List<DecodeResult> scanImage(File file, int page, DecodeDeadline deadline, FileScanEvent event) throws IOException {
+        try (ImageInputStream input = openImage(file)) {
+            ImageReader reader = readerFor(input, file.getName());
+            try {
+                int index = Math.max(0, page);
+                if ((long) reader.getWidth(index) * reader.getHeight(index) > LARGE_IMAGE_PIXELS) {
+                    return scanLargeFrame(reader, page, deadline, event);
+                }
+                return decodeFrame(page, reader.read(index), deadline, event);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Decodes a whole frame and tags the results with its page. */
+    public List<DecodeResult> decodeFrame(int page, BufferedImage image, DecodeDeadline deadline, FileScanEvent event) {
+        synchronized (event) {
+            recordPage(event, image.getWidth(), image.getHeight());
+        }
+        List<DecodeResult> results = qrProcessor.decodeAll(image, deadline);
+        return page < 0 ? results : tag(results, page);
+    }
+
+    /**
+     * Decodes a frame without ever holding more than a bounded number of its pixels. It is
+     * first read as a subsampled preview of about {@link #PREVIEW_PIXELS}, which finds any code
+     * big enough to survive the subsampling. Only on a miss is it read again at full
+     * resolution, one overlapping {@link #TILE_SIZE} tile at a time.
+     * @param event receives the size of the frame; may be shared between threads.
+     */
+    public List<DecodeResult> scanLargeFrame(ImageReader reader, int page, DecodeDeadline deadline, FileScanEvent event) throws IOException {
+        int index = Math.max(0, page);
+        int width = reader.getWidth(index);
+        int height = reader.getHeight(index);
+        synchronized (event) {
+            recordPage(event, width, height);
+        }
+        List<DecodeResult> results = scanLarge(width, height, (region, subsampling) -> {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(region);
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return reader.read(index, param);
+        }, deadline);
+        return page < 0 ? results : tag(results, page);
+    }
+
+    /** Reads part of an image, every {@code subsampling}th pixel in each direction. */
+    @FunctionalInterface
+    private interface RegionSource {
+        BufferedImage read(Rectangle region, int subsampling) throws IOException;
+    }
+
+    /** The preview-then-tiles decode of {@link #scanLargeFrame}, for any image that can be read by region. */
+    private List<DecodeResult> scanLarge(int width, int height, RegionSource source, DecodeDeadline deadline) throws IOException {
+        int subsampling = (int) Math.ceil(Math.sqrt((double) width * height / PREVIEW_PIXELS));
+        List<DecodeResult> results = new ArrayList<>();
+        for (DecodeResult result : qrProcessor.decodeAll(source.read(new Rectangle(0, 0, width, height), subsampling), deadline)) {
+            results.add(result.mapped(subsampling, 0, 0));
+        }
+        return results.isEmpty() ? scanTiles(width, height, source, deadline) : results;
+    }
+
+    private List<DecodeResult> scanTiles(int width, int height, RegionSource source, DecodeDeadline deadline) throws IOException {
+        List<DecodeResult> results = new ArrayList<>();
+        int step = TILE_SIZE - TILE_OVERLAP;
+        for (int y = 0; y < height; y += step) {
+            for (int x = 0; x < width; x += step) {
+                if (deadline.isExpired()) return DecodeResult.distinctByText(results);
+                Rectangle tile = new Rectangle(x, y, Math.min(TILE_SIZE, width - x), Math.min(TILE_SIZE, height - y));
+                for (DecodeResult result : qrProcessor.decodeAll(source.read(tile, 1), deadline)) {
+                    results.add(result.mapped(1, x, y));
+                }
+                if (x + TILE_SIZE >= width) break;
+            }
+            if (y + TILE_SIZE >= height) break;
+        }
+        // A code inside an overlap is found by both neighbouring tiles.
+        return DecodeResult.distinctByText(results);
+    }
+
+    /** Decodes every frame of an image on the calling thread. */
+    private List<DecodeResult> scanFrames(ImageInputStream input, String name, DecodeDeadline deadline, FileScanEvent event)
+            throws IOException, InterruptedException {
+        List<DecodeResult> results = new ArrayList<>();
+        readFrames(input, name, new FrameConsumer() {
+            @Override
+            public void frame(int page, BufferedImage image) {
+                results.addAll(decodeFrame(page, image, deadline, event));
+            }
+
+            @Override
+            public void largeFrame(int page, ImageReader reader) throws IOException {
+                results.addAll(scanLargeFrame(reader, page, deadline, event));
+            }
+        });
+        return results;
+    }
+
+    /** Decodes every supported entry of an archive in turn; an unreadable entry is skipped. */
+    private List<DecodeResult> scanArchive(File file, FileScanEvent event) throws IOException, InterruptedException {
+        List<DecodeResult> results = new ArrayList<>();
+        readArchive(file, (entry, content) -> {
+            try {
+                List<DecodeResult> found;
+                if (isPdfName(entry)) {
+                    File pdf = spoolEntry(content);
+                    try (PDDocument document = loadPdf(pdf)) {
+                        found = new ArrayList<>();
+                        for (int page = 0; page < document.getNumberOfPages(); page++) {
+                            found.addAll(scanPage(document, page, DecodeDeadline.unbounded(), event));
+                        }
+                    } finally {
+                        deleteSpooled(pdf);
+                    }
+                } else {
+                    try (ImageInputStream input = openEntryImage(content)) {
+                        found = scanFrames(input, entry, DecodeDeadline.unbounded(), event);
+                    }
+                }
+                for (DecodeResult result : found) results.add(result.inEntry(entry));
+            } catch (IOException e) {
+                System.err.println("Skipping " + entry + " in " + file.getName() + ": " + e.getMessage());
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Wraps an archive entry for an {@link ImageReader}. Readers seek back for later frames and
+     * tiles, so what has been read is cached in a temporary file rather than on the heap; a
+     * multi-hundred-megabyte TIFF in a ZIP then costs disk, not memory.
+     */
+    public static ImageInputStream openEntryImage(InputStream content) throws IOException {
+        return new FileCacheImageInputStream(content, null);
+    }
+
+    /**
+     * Copies a PDF archive entry to a temporary file, so it can be opened with {@link #loadPdf(File)}
+     * instead of being held on the heap whole. Pass the file to {@link #deleteSpooled} when done.
+     */
+    public static File spoolEntry(InputStream content) throws IOException {
+        Path temp = Files.createTempFile("qr-entry", ".pdf");
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp.toFile();
+    }
+
+    /** Deletes a file from {@link #spoolEntry}, or on exit if a document still has it open. */
+    public static void deleteSpooled(File spooled) {
+        if (!spooled.delete() && spooled.exists()) spooled.deleteOnExit();
+    }
+
+    private static ImageInputStream openImage(File file) throws IOException {
+        if (!file.isFile()) throw new FileNotFoundException(file.getPath());
+        ImageInputStream input = ImageIO.createImageInputStream(file);
+        if (input == null) throw new IOException("Could not read image file: " + file.getName());
+        return input;
+    }
+
+    private static ImageReader readerFor(ImageInputStream input, String name) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) throw new IOException("Could not read image file: " + name);
+        ImageReader reader = readers.next();
+        // Not seek-forward-only, so the same reader can go back for later frames and full-resolution tiles.
+        reader.setInput(input, false, true);
+        return reader;
+    }
+
+    public int countPages(File file) throws IOException {
+        try (PDDocument document = loadPdf(file)) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    /**
+     * Decodes one PDF page. A page that only draws images is decoded straight from those images
+     * at their native resolution. Any other page is rendered at each of {@link #PDF_DPI_STEPS}
+     * in turn until a code is found. Most pages carry codes large enough for the first step,
+     * so the full-resolution raster, nine times the pixels, is only rendered for pages that need it.
+     * @param event receives the size of the last raster rendered; may be shared between threads.
+     */
+    public List<DecodeResult> scanPage(PDDocument document, int page, DecodeDeadline deadline, FileScanEvent event) throws IOException {
+        List<PDImageXObject> embedded = embeddedImagesOnly(document.getPage(page));
+        // Codes from the embedded images decoded before one of them failed, if any did.
+        List<DecodeResult> partial = new ArrayList<>();
+        if (embedded != null) {
+            try {
+                decodeEmbedded(embedded, deadline, event, partial);
+                return tag(partial, page);
+            } catch (IOException e) {
+                // An image filter PDFBox cannot decode natively (e.g. JBIG2); let the renderer try.
+            }
+        }
+        PDFRenderer renderer = new PDFRenderer(document);
+        BufferedImage image = null;
+        List<DecodeResult> results = Collections.emptyList();
+        for (int dpi : PDF_DPI_STEPS) {
+            if (deadline.isExpired()) break;
+            // Grey rasters are a quarter of the size of the default ARGB ones and are what the decoder reads anyway.
+            image = renderer.renderImageWithDPI(page, dpi, ImageType.GRAY);
+            results = qrProcessor.decodeAll(image, deadline);
+            if (!results.isEmpty()) break;
+        }
+        if (image != null) {
+            synchronized (event) {
+                recordPage(event, image.getWidth(), image.getHeight());
+            }
+        }
+        if (!partial.isEmpty()) {
+            partial.addAll(results);
+            results = DecodeResult.distinctByText(partial);
+        }
+        return tag(results, page);
+    }
+
+    /**
+     * Images drawn by a page that does nothing but place images, as scanner output does, or
+     * {@code null} if its content stream also draws text, vector paths, forms or inline images.
+     * Such pages can be decoded from their images at native resolution without rendering.
+     */
+    static List<PDImageXObject> embeddedImagesOnly(PDPage page) throws IOException {
+        PDResources resources = page.getResources();
+        List<PDImageXObject> images = new ArrayList<>();
+        List<COSName> seen = new ArrayList<>();
+        PDFStreamParser parser = new PDFStreamParser(page);
+        Object previous = null;
+        for (Object token = parser.parseNextToken(); token != null; token = parser.parseNextToken()) {
+            if (token instanceof Operator) {
+                String operator = ((Operator) token).getName();
+                if ("Do".equals(operator)) {
+                    if (!(previous instanceof COSName) || resources == null) return null;
+                    COSName name = (COSName) previous;
+                    PDXObject xObject = resources.getXObject(name);
+                    if (!(xObject instanceof PDImageXObject)) return null;
+                    if (!seen.contains(name)) {
+                        seen.add(name);
+                        images.add((PDImageXObject) xObject);
+                    }
+                } else if (!IMAGE_PAGE_OPERATORS.contains(operator)) {
+                    return null;
+                }
+            }
+            previous = token;
+        }
+        return images;
+    }
+
+    /**
+     * Decodes a page's embedded images into {@code results}, which keeps what was found if a
+     * later image fails. Images over {@link #LARGE_IMAGE_PIXELS}, such as 600 dpi scans, are
+     * decoded by region like large image files. The page is recorded on the event once, at the
+     * size of its largest image.
+     */
+    private void decodeEmbedded(List<PDImageXObject> embedded, DecodeDeadline deadline, FileScanEvent event,
+                                List<DecodeResult> results) throws IOException {
+        int width = 0;
+        int height = 0;
+        for (PDImageXObject xObject : embedded) {
+            if (deadline.isExpired()) break;
+            RegionSource source = (region, subsampling) -> {
+                BufferedImage image = xObject.getImage(region, subsampling);
+                if (image == null) throw new IOException("Unreadable embedded image");
+                return image;
+            };
+            if ((long) xObject.getWidth() * xObject.getHeight() > LARGE_IMAGE_PIXELS) {
+                results.addAll(scanLarge(xObject.getWidth(), xObject.getHeight(), source, deadline));
+            } else {
+                results.addAll(qrProcessor.decodeAll(source.read(null, 1), deadline));
+            }
+            if ((long) xObject.getWidth() * xObject.getHeight() > (long) width * height) {
+                width = xObject.getWidth();
+                height = xObject.getHeight();
+            }
+        }
+        if (width > 0) {
+            synchronized (event) {
+                recordPage(event, width, height);
+            }
+        }
+    }
+
+    private static List<DecodeResult> tag(List<DecodeResult> results, int page) {
+        List<DecodeResult> tagged = new ArrayList<>(results.size());
+        for (DecodeResult result : results) tagged.add(result.onPage(page));
+        return tagged;
+    }
+
+    /** Opens a PDF with its parsed objects spilled to a scratch file past a small in-memory budget. */
+    public static PDDocument loadPdf(File file) throws IOException {
+        return PDDocument.load(file, MemoryUsageSetting.setupMixed(PDF_MAIN_MEMORY_BYTES));
+    }
+
+    private List<DecodeResult> scanPdf(File file, FileScanEvent event) throws IOException {
+        int pages = countPages(file);
+        int threads = Math.min(pageParallelism, pages);
+        if (threads <= 1) return scanPages(file, 0, 1, pages, event);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "qr-pdf-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Interleaved stripes, so pages that are slow to render near each other are shared out.
+            List<Future<List<DecodeResult>>> stripes = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                stripes.add(pool.submit(() -> scanPages(file, first, threads, pages, event)));
+            }
+            List<DecodeResult> results = new ArrayList<>();
+            for (Future<List<DecodeResult>> stripe : stripes) results.addAll(stripe.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Scan of " + file.getName() + " was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Failed to scan " + file.getName() + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Scans pages {@code first}, {@code first + step}, ... on the calling thread with its own document. */
+    private List<DecodeResult> scanPages(File file, int first, int step, int pages, FileScanEvent event) throws IOException {
+        List<DecodeResult> results = new ArrayList<>();
+        try (PDDocument document = loadPdf(file)) {
+            for (int page = first; page < pages; page += step) {
+                results.addAll(scanPage(document, page, DecodeDeadline.unbounded(), event));
+            }
+        }
+        return results;
+    }
+
+    /** Notes a page's size on a file scan event; call once per page. */
+    static void recordPage(FileScanEvent event, int width, int height) {
+        event.pages++;
+        event.width = width;
+        event.height = height;
+    }
+
+    /** Ends a file scan event and commits it if a recording wants it. */
+    static void commitEvent(FileScanEvent event, File file, List<DecodeResult> results) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.path = file.getPath();
+        event.fileType = extensionOf(file.getName());
+        event.size = file.length();
+        event.codes = DecodeResult.distinctByText(results).size();
+        event.success = event.codes > 0;
+        event.commit();
+    }
+
+    static String extensionOf(String fileName) {
+        return fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,43 @@
+package com.qrscanner;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** Flight Recorder event for one live frame decoded by a {@link ScanPipeline} worker. */
+@Name("com.qrscanner.Frame")
+@Label("Camera Frame")
+@Category({"QR Scanner", "Camera"})
+@Description("Decode of one frame from the live scanning pipeline")
+@StackTrace(false)
+class FrameEvent extends jdk.jfr.Event {
+    @Label("Source")
+    String source;
+
+    @Label("Sequence")
+    long sequence;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Queue Time")
+    @Description("Time between capture and the start of decoding")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Codes Found")
+    int codes;
+
+    @Label("Deadline Expired")
+    @Description("The frame budget ran out or a newer hit cancelled the decode")
+    boolean expired;
+}
@@ -0,0 +1,160 @@
+package com.qrscanner;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap pre-decode filter run by the capture stage of the {@link ScanPipeline}.
+ * <p>
+ * Every frame is reduced to a small block-averaged thumbnail. When enough of its
+ * blocks differ from the current scene's by more than the motion threshold, a new
+ * scene begins. Counting changed blocks, rather than averaging over the whole
+ * thumbnail, lets a code held up in one small part of an otherwise still view
+ * start a scene of its own. Frames of a static scene are skipped once that scene has been decoded,
+ * or once it has been tried often enough to have gone through every fallback
+ * tier. A sharpness score, the mean gradient over a sparse grid of full-resolution
+ * samples, rejects motion-blurred frames, though every few are let through so that
+ * low-texture scenes are not starved. On an idle kiosk this leaves only the
+ * capture and this check running.
+ */
+public class FrameGate {
+    public enum Verdict { DECODE, SKIP_STATIC, SKIP_BLURRY }
+
+    private static final int THUMB_WIDTH = 64;
+    private static final int THUMB_HEIGHT = 48;
+    private static final int SHARPNESS_SAMPLES_X = 80;
+    private static final int SHARPNESS_SAMPLES_Y = 60;
+    /** One blurry frame in this many is decoded anyway. */
+    private static final int BLURRY_PASS_EVERY = 5;
+    /** Changed blocks needed for a new scene: about 0.25% of the frame, well under a small code's share. */
+    private static final int MIN_CHANGED_BLOCKS = 8;
+
+    private final int[] thumbnail = new int[THUMB_WIDTH * THUMB_HEIGHT];
+    private final int[] sceneThumbnail = new int[THUMB_WIDTH * THUMB_HEIGHT];
+    private final AtomicLong framesPassed = new AtomicLong();
+    private final AtomicLong skippedStatic = new AtomicLong();
+    private final AtomicLong skippedBlurry = new AtomicLong();
+
+    private volatile double motionThreshold = 24.0;
+    private volatile double sharpnessThreshold = 3.0;
+    private volatile int maxStaticAttempts = 6;
+
+    private boolean hasScene;
+    private long sceneId;
+    private int sceneAttempts;
+    private boolean sceneDecoded;
+    private int blurryStreak;
+    private int lastChangedBlocks;
+    private double lastSharpness;
+
+    /**
+     * Decides whether a freshly captured frame should be decoded, and tags it with its scene.
+     * Called from the capture thread only.
+     */
+    public synchronized Verdict evaluate(ScanFrame frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        byte[] luminances = frame.getLuminances();
+        buildThumbnail(luminances, width, height);
+        lastChangedBlocks = hasScene ? changedBlocks() : Integer.MAX_VALUE;
+        if (lastChangedBlocks >= MIN_CHANGED_BLOCKS) {
+            System.arraycopy(thumbnail, 0, sceneThumbnail, 0, thumbnail.length);
+            hasScene = true;
+            sceneId++;
+            sceneAttempts = 0;
+            sceneDecoded = false;
+        }
+        frame.setScene(sceneId);
+        if (sceneDecoded || sceneAttempts >= maxStaticAttempts) {
+            skippedStatic.incrementAndGet();
+            return Verdict.SKIP_STATIC;
+        }
+        lastSharpness = sharpness(luminances, width, height);
+        if (lastSharpness < sharpnessThreshold && ++blurryStreak % BLURRY_PASS_EVERY != 0) {
+            skippedBlurry.incrementAndGet();
+            return Verdict.SKIP_BLURRY;
+        }
+        blurryStreak = 0;
+        sceneAttempts++;
+        framesPassed.incrementAndGet();
+        return Verdict.DECODE;
+    }
+
+    /** Reports a decode outcome; a hit marks the frame's scene as done. Called from decoder workers. */
+    public synchronized void recordResult(ScanFrame frame, boolean hit) {
+        if (hit && frame.getScene() == sceneId) sceneDecoded = true;
+    }
+
+    /** Forgets the current scene, e.g. when the camera restarts. */
+    public synchronized void reset() {
+        hasScene = false;
+        sceneAttempts = 0;
+        sceneDecoded = false;
+        blurryStreak = 0;
+    }
+
+    /** Difference of one thumbnail block's mean (0-255) above which that block counts as changed. */
+    public void setMotionThreshold(double threshold) { this.motionThreshold = threshold; }
+    /** Mean gradient (0-510) below which a frame counts as too blurry to decode. */
+    public void setSharpnessThreshold(double threshold) { this.sharpnessThreshold = threshold; }
+    /** Decode attempts allowed on an unchanged scene that has not produced a hit. */
+    public void setMaxStaticAttempts(int attempts) { this.maxStaticAttempts = Math.max(1, attempts); }
+
+    public double getMotionThreshold() { return motionThreshold; }
+    public double getSharpnessThreshold() { return sharpnessThreshold; }
+    public int getMaxStaticAttempts() { return maxStaticAttempts; }
+    public long getFramesPassed() { return framesPassed.get(); }
+    public long getSkippedStatic() { return skippedStatic.get(); }
+    public long getSkippedBlurry() { return skippedBlurry.get(); }
+    public synchronized int getLastChangedBlocks() { return lastChangedBlocks; }
+    public synchronized double getLastSharpness() { return lastSharpness; }
+
+    private void buildThumbnail(byte[] luminances, int width, int height) {
+        for (int ty = 0; ty < THUMB_HEIGHT; ty++) {
+            int y0 = ty * height / THUMB_HEIGHT;
+            int y1 = Math.max(y0 + 1, (ty + 1) * height / THUMB_HEIGHT);
+            for (int tx = 0; tx < THUMB_WIDTH; tx++) {
+                int x0 = tx * width / THUMB_WIDTH;
+                int x1 = Math.max(x0 + 1, (tx + 1) * width / THUMB_WIDTH);
+                int sum = 0;
+                // Every other row and column is enough for a motion signature.
+                int count = 0;
+                for (int y = y0; y < y1; y += 2) {
+                    int offset = y * width;
+                    for (int x = x0; x < x1; x += 2) {
+                        sum += luminances[offset + x] & 0xFF;
+                        count++;
+                    }
+                }
+                thumbnail[ty * THUMB_WIDTH + tx] = sum / Math.max(1, count);
+            }
+        }
+    }
+
+    /** Thumbnail blocks that differ from the scene's by more than the motion threshold. */
+    private int changedBlocks() {
+        double threshold = motionThreshold;
+        int changed = 0;
+        for (int i = 0; i < thumbnail.length; i++) {
+            if (Math.abs(thumbnail[i] - sceneThumbnail[i]) > threshold) changed++;
+        }
+        return changed;
+    }
+
+    private static double sharpness(byte[] luminances, int width, int height) {
+        if (width < 2 || height < 2) return 0;
+        long total = 0;
+        int samples = 0;
+        for (int sy = 0; sy < SHARPNESS_SAMPLES_Y; sy++) {
+            int y = sy * (height - 1) / SHARPNESS_SAMPLES_Y;
+            for (int sx = 0; sx < SHARPNESS_SAMPLES_X; sx++) {
+                int x = sx * (width - 1) / SHARPNESS_SAMPLES_X;
+                int offset = y * width + x;
+                int centre = luminances[offset] & 0xFF;
+                total += Math.abs((luminances[offset + 1] & 0xFF) - centre)
+                       + Math.abs((luminances[offset + width] & 0xFF) - centre);
+                samples++;
+            }
+        }
+        return total / (double) samples;
+    }
+}
@@ -0,0 +1,40 @@
+package com.qrscanner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces a recorded or generated frame stream at a fixed rate.
+ * <p>
+ * Frame numbers are derived from the time elapsed since {@link #restart()} rather
+ * than from the previous grab, so a consumer that falls behind skips frames the way
+ * it would with a live camera, and the stream keeps its wall-clock timing.
+ */
+class FramePacer {
+    private final long frameNanos;
+    private long startNanos;
+    private long lastFrame = -1;
+
+    /** @param framesPerSecond frame rate; {@code 0} or less hands out frames as fast as they are asked for. */
+    FramePacer(double framesPerSecond) {
+        this.frameNanos = framesPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond) : 0;
+        restart();
+    }
+
+    void restart() {
+        startNanos = System.nanoTime();
+        lastFrame = -1;
+    }
+
+    /** Blocks until a frame newer than the last one handed out is due, then returns its number. */
+    long awaitNextFrame() throws InterruptedException {
+        if (frameNanos == 0) return ++lastFrame;
+        long frame = (System.nanoTime() - startNanos) / frameNanos;
+        if (frame <= lastFrame) {
+            frame = lastFrame + 1;
+            long waitNanos = startNanos + frame * frameNanos - System.nanoTime();
+            if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        lastFrame = frame;
+        return frame;
+    }
+}
@@ -0,0 +1,30 @@
+package com.qrscanner;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed set of reusable {@link ScanFrame}s shared by the capture stage and decoder workers.
+ * A frame is acquired before capture and must be released once it has been decoded or dropped.
+ */
+public class FramePool {
+    private final BlockingQueue<ScanFrame> free;
+
+    public FramePool(int size) {
+        this.free = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) free.add(new ScanFrame());
+    }
+
+    /** @return a free frame, or {@code null} if every frame is currently in flight. */
+    public ScanFrame acquire() {
+        return free.poll();
+    }
+
+    public void release(ScanFrame frame) {
+        if (frame != null) free.offer(frame);
+    }
+
+    public int available() {
+        return free.size();
+    }
+}
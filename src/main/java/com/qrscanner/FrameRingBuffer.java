@@ -0,0 +1,112 @@
+package com.qrscanner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded frame queue between the capture stage and the decoder workers.
+ * When full, offering a new frame evicts the oldest one: a live scanner only
+ * cares about what the camera sees now, never about a backlog.
+ */
+public class FrameRingBuffer {
+    private final ScanFrame[] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private int head = 0; // index of the oldest frame
+    private int count = 0;
+
+    public FrameRingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1");
+        this.slots = new ScanFrame[capacity];
+    }
+
+    /**
+     * Adds a frame, evicting the oldest queued frame if the buffer is full.
+     * @return the evicted frame, or {@code null} if nothing had to be dropped.
+     */
+    public ScanFrame offer(ScanFrame frame) {
+        lock.lock();
+        try {
+            ScanFrame evicted = null;
+            if (count == slots.length) {
+                evicted = slots[head];
+                slots[head] = null;
+                head = (head + 1) % slots.length;
+                count--;
+                droppedFrames.incrementAndGet();
+            }
+            slots[(head + count) % slots.length] = frame;
+            count++;
+            notEmpty.signal();
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Blocks until a frame is available and removes the oldest one. */
+    public ScanFrame take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) notEmpty.await();
+            return removeHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Like {@link #take()} but gives up after the timeout, returning {@code null}. */
+    public ScanFrame poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return removeHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Discards all queued frames. */
+    public void clear() {
+        lock.lock();
+        try {
+            while (count > 0) removeHead();
+            head = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /** Number of frames evicted because the decoders could not keep up. */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    private ScanFrame removeHead() {
+        ScanFrame frame = slots[head];
+        slots[head] = null;
+        head = (head + 1) % slots.length;
+        count--;
+        return frame;
+    }
+}
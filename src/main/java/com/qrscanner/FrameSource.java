@@ -0,0 +1,30 @@
+package com.qrscanner;
+
+import java.io.IOException;
+
+/**
+ * Where the {@link ScanPipeline} gets its frames from.
+ * <p>
+ * The pipeline's capture thread calls {@link #grabInto} once per capture interval;
+ * opening and closing the source is left to whoever owns it. Besides the
+ * {@link WebcamFrameSource} used by the camera tab, {@link ReplayFrameSource} and
+ * {@link SyntheticFrameSource} let the same pipeline run headless, e.g. for
+ * benchmarks and soak tests on machines without a camera.
+ */
+public interface FrameSource {
+    /** Acquires the underlying device or files. Opening an open source has no effect. */
+    void open() throws IOException;
+
+    /**
+     * Fills a pooled frame with the next image. Sources with their own frame rate
+     * may block until the next frame is due.
+     * @return {@code true} if {@code target} now holds a new frame.
+     */
+    boolean grabInto(ScanFrame target) throws IOException, InterruptedException;
+
+    /** Releases the device or files. Closing a closed source has no effect. */
+    void close();
+
+    /** Short human-readable description, shown in status text and reports. */
+    String getName();
+}
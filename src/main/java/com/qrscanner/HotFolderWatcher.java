@@ -0,0 +1,288 @@
+package com.qrscanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches directories, and their subdirectories, for new or changed images and PDFs and
+ * scans each one once its writes have finished. A file counts as finished once no event
+ * has arrived for it for the debounce period and its size and modification time have
+ * stopped changing, so large files copied in slowly are not read half written.
+ * <p>
+ * Finished files feed a long-running {@link BatchScanner}, so a burst of thousands of
+ * files only queues their paths; reading and decoding stay on its bounded pools. When the
+ * watch service overflows and events are lost, the directories are walked again for
+ * files changed since watching began.
+ */
+public class HotFolderWatcher {
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 2000;
+    private static final long POLL_MILLIS = 250;
+    /** How often new cache entries are written out while watching, so a crash loses little. */
+    private static final long CACHE_SAVE_INTERVAL_MILLIS = 60_000;
+
+    private final QRProcessor qrProcessor;
+    private final int decoderThreads;
+    private final BatchScanner.Listener listener;
+    private final Map<Path, PendingFile> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<File> ready = new LinkedBlockingQueue<>();
+    private final List<Path> directories = new ArrayList<>();
+
+    private volatile boolean running = false;
+    private volatile long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private volatile long startedMillis;
+    private volatile DecodeCache decodeCache;
+    private WatchService watchService;
+    private Thread watchThread;
+    private BatchScanner scanner;
+
+    /** @param listener receives every scanned file on a scanner thread, until {@link #stop()}. */
+    public HotFolderWatcher(QRProcessor qrProcessor, int decoderThreads, BatchScanner.Listener listener) {
+        this.qrProcessor = qrProcessor;
+        this.decoderThreads = decoderThreads;
+        this.listener = listener;
+    }
+
+    /** Answers files seen before from {@code cache}; set before {@link #start}. */
+    public void setDecodeCache(DecodeCache cache) {
+        this.decodeCache = cache;
+    }
+
+    /** How long a file must go without changes before it is scanned. */
+    public void setDebounceMillis(long millis) {
+        this.debounceMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Starts watching {@code folders} recursively. Files already there are left alone.
+     * @throws IOException if a folder cannot be watched; nothing is left running then.
+     */
+    public synchronized void start(List<Path> folders) throws IOException {
+        if (running) return;
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            for (Path folder : folders) register(folder);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        directories.clear();
+        directories.addAll(folders);
+        pending.clear();
+        ready.clear();
+        startedMillis = System.currentTimeMillis();
+        running = true;
+        scanner = new BatchScanner(qrProcessor, BatchScanner.DEFAULT_READER_THREADS, decoderThreads);
+        scanner.setDecodeCache(decodeCache);
+        scanner.start(new ReadyFiles(), listener);
+        watchThread = new Thread(this::watchLoop, "qr-hot-folder");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /** Stops watching and saves the cache; files waiting to be scanned are dropped and in-flight scans cancelled. */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        watchThread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close folder watch: " + e.getMessage());
+        }
+        scanner.cancel();
+        pending.clear();
+        ready.clear();
+        saveCache();
+    }
+
+    public boolean isRunning() { return running; }
+    public synchronized List<Path> getDirectories() { return Collections.unmodifiableList(new ArrayList<>(directories)); }
+    /** Files seen changing but not yet finished, plus finished files waiting for a reader. */
+    public int getPendingFiles() { return pending.size() + ready.size(); }
+
+    private void watchLoop() {
+        long lastSaveNanos = System.nanoTime();
+        try {
+            while (running) {
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                for (; key != null; key = watchService.poll()) {
+                    handle(key);
+                }
+                promoteSettledFiles();
+                if (System.nanoTime() - lastSaveNanos > TimeUnit.MILLISECONDS.toNanos(CACHE_SAVE_INTERVAL_MILLIS)) {
+                    saveCache();
+                    lastSaveNanos = System.nanoTime();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    private void saveCache() {
+        if (decodeCache == null) return;
+        try {
+            decodeCache.save();
+        } catch (IOException e) {
+            System.err.println("Failed to save decode cache: " + e.getMessage());
+        }
+    }
+
+    private void handle(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rescan();
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (Files.isDirectory(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    // Files may land in a new directory before it is registered, so pick those up too.
+                    try {
+                        register(path);
+                        markChangedUnder(path, 0);
+                    } catch (IOException e) {
+                        System.err.println("Cannot watch " + path + ": " + e.getMessage());
+                    }
+                }
+            } else if (FileScanner.isSupported(path)) {
+                markChanged(path);
+            }
+        }
+        key.reset();
+    }
+
+    /** Events were lost; walks every folder for files changed since watching began. */
+    private void rescan() {
+        for (Path directory : getDirectories()) {
+            try {
+                markChangedUnder(directory, startedMillis);
+            } catch (IOException e) {
+                System.err.println("Failed to rescan " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void markChangedUnder(Path directory, long modifiedSinceMillis) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (FileScanner.isSupported(file) && attributes.lastModifiedTime().toMillis() >= modifiedSinceMillis) {
+                    markChanged(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void markChanged(Path path) {
+        pending.compute(path, (p, file) -> {
+            if (file == null) file = new PendingFile();
+            file.touch(p);
+            return file;
+        });
+    }
+
+    /** Moves files that have been quiet for the debounce period, and are unchanged since, to the scan queue. */
+    private void promoteSettledFiles() {
+        long now = System.nanoTime();
+        long debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        for (Map.Entry<Path, PendingFile> entry : pending.entrySet()) {
+            Path path = entry.getKey();
+            PendingFile file = entry.getValue();
+            if (now - file.lastChangeNanos < debounceNanos) continue;
+            if (!Files.isRegularFile(path)) {
+                pending.remove(path, file);
+            } else if (file.isSettled(path)) {
+                if (pending.remove(path, file)) ready.add(path.toFile());
+            }
+        }
+    }
+
+    private void register(Path folder) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /** Size and modification time of a file when it last changed, and when that was. */
+    private static class PendingFile {
+        long size = -1;
+        long modifiedMillis = -1;
+        long lastChangeNanos;
+
+        void touch(Path path) {
+            lastChangeNanos = System.nanoTime();
+            size = path.toFile().length();
+            modifiedMillis = path.toFile().lastModified();
+        }
+
+        /** @return {@code true} if nothing changed since the last look; otherwise restarts the quiet period. */
+        boolean isSettled(Path path) {
+            long currentSize = path.toFile().length();
+            long currentModified = path.toFile().lastModified();
+            if (currentSize == size && currentModified == modifiedMillis) return true;
+            size = currentSize;
+            modifiedMillis = currentModified;
+            lastChangeNanos = System.nanoTime();
+            return false;
+        }
+    }
+
+    /** The scanner's never-ending file list: blocks until a file is ready, and ends once watching stops. */
+    private class ReadyFiles implements Iterator<File> {
+        private File next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (!running) return false;
+                try {
+                    next = ready.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public File next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            File file = next;
+            next = null;
+            return file;
+        }
+    }
+}
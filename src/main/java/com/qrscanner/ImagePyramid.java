@@ -0,0 +1,80 @@
+package com.qrscanner;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Successively halved copies of a luminance plane, used to decode large images
+ * coarse-to-fine.
+ * <p>
+ * Each level is produced from the one above it with a 2x2 integer box filter. The
+ * level buffers belong to the pyramid and are reused by every {@link #build} call,
+ * so a thread scanning page after page allocates them once. Not thread-safe; keep
+ * one instance per thread.
+ */
+public class ImagePyramid {
+    static final int MAX_LEVELS = 6;
+
+    private final byte[][] levels = new byte[MAX_LEVELS][];
+    private final int[] widths = new int[MAX_LEVELS];
+    private final int[] heights = new int[MAX_LEVELS];
+    private int levelCount;
+
+    /**
+     * Builds levels below {@code base} until the next one would have a longest side under
+     * {@code minDimension}. Level 0 is {@code base} itself and is not copied.
+     */
+    public void build(byte[] base, int width, int height, int minDimension) {
+        levels[0] = base;
+        widths[0] = width;
+        heights[0] = height;
+        levelCount = 1;
+        while (levelCount < MAX_LEVELS) {
+            int w = widths[levelCount - 1] / 2;
+            int h = heights[levelCount - 1] / 2;
+            if (Math.max(w, h) < minDimension || Math.min(w, h) < 1) break;
+            byte[] buffer = levels[levelCount];
+            if (buffer == null || buffer.length < w * h) {
+                buffer = new byte[w * h];
+                levels[levelCount] = buffer;
+            }
+            downsample(levels[levelCount - 1], widths[levelCount - 1], buffer, w, h);
+            widths[levelCount] = w;
+            heights[levelCount] = h;
+            levelCount++;
+        }
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /** Factor by which level {@code level} is smaller than the base image. */
+    public int getScale(int level) {
+        return 1 << level;
+    }
+
+    /** A luminance view of one level; only valid until the next {@link #build} call. */
+    public LuminanceSource getLevel(int level) {
+        return new PooledLuminanceSource(levels[level], widths[level], heights[level]);
+    }
+
+    /** Drops the reference to the caller's base plane; the scaled buffers are kept for reuse. */
+    public void release() {
+        levels[0] = null;
+    }
+
+    /** Averages every 2x2 block of {@code src} into one pixel of {@code dst}, rounding to nearest. */
+    static void downsample(byte[] src, int srcWidth, byte[] dst, int dstWidth, int dstHeight) {
+        for (int y = 0; y < dstHeight; y++) {
+            int row0 = 2 * y * srcWidth;
+            int row1 = row0 + srcWidth;
+            int out = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                int sx = 2 * x;
+                int sum = (src[row0 + sx] & 0xFF) + (src[row0 + sx + 1] & 0xFF)
+                        + (src[row1 + sx] & 0xFF) + (src[row1 + sx + 1] & 0xFF);
+                dst[out + x] = (byte) ((sum + 2) >> 2);
+            }
+        }
+    }
+}
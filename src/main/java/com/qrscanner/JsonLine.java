@@ -0,0 +1,58 @@
+package com.qrscanner;
+
+import java.util.Locale;
+
+/**
+ * Builds one flat JSON object per line, for machine-readable reports (JSON Lines).
+ * Fields are written in insertion order; nothing is nested and nothing is parsed.
+ */
+class JsonLine {
+    private final StringBuilder json = new StringBuilder("{");
+
+    JsonLine put(String key, String value) {
+        return raw(key, value == null ? "null" : quote(value));
+    }
+
+    JsonLine put(String key, long value) {
+        return raw(key, Long.toString(value));
+    }
+
+    JsonLine put(String key, boolean value) {
+        return raw(key, Boolean.toString(value));
+    }
+
+    /** Non-finite values are written as {@code null}, since JSON has no NaN or Infinity. */
+    JsonLine put(String key, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return raw(key, "null");
+        return raw(key, String.format(Locale.ROOT, "%.3f", value));
+    }
+
+    @Override
+    public String toString() {
+        return json + "}";
+    }
+
+    private JsonLine raw(String key, String json) {
+        if (this.json.length() > 1) this.json.append(',');
+        this.json.append(quote(key)).append(':').append(json);
+        return this;
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': quoted.append("\\\""); break;
+                case '\\': quoted.append("\\\\"); break;
+                case '\n': quoted.append("\\n"); break;
+                case '\r': quoted.append("\\r"); break;
+                case '\t': quoted.append("\\t"); break;
+                default:
+                    if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+                    else quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
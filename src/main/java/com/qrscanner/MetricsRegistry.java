@@ -0,0 +1,192 @@
+package com.qrscanner;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide latency histograms and counters for the scanning pipeline.
+ * <p>
+ * Every stage a frame goes through records its duration into a
+ * {@link LatencyHistogram}, and the main events bump a counter; both are
+ * allocation-free and cost a few atomic operations. The registry is published over
+ * JMX, so JConsole or Mission Control can watch a running kiosk, and can append a
+ * JSON snapshot to a file at a fixed interval, e.g. for log shipping.
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+    static final String OBJECT_NAME = "com.qrscanner:type=ScanMetrics";
+
+    /** Where time goes between the camera and the user. */
+    public enum Stage {
+        /** Grabbing a frame from its source, including any wait for the next frame and luminance conversion. */
+        CAPTURE,
+        /** Converting pixels to the 8-bit luminance plane. */
+        LUMINANCE,
+        /** Thresholding a luminance plane into a bit matrix, once per decode attempt. */
+        BINARIZE,
+        /** Locating and reading codes in a bit matrix, once per decode attempt. */
+        DECODE,
+        /** Working out a payload's {@link QRProcessor.QRCodeType}. */
+        CLASSIFY,
+        /** From handing results to the event dispatch thread until they are handled there. */
+        UI_DISPATCH
+    }
+
+    public enum Counter { FRAMES_GRABBED, FRAMES_SKIPPED, FRAMES_DROPPED, FRAMES_DECODED, FRAMES_HIT, DEDUPLICATED }
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private ScheduledExecutorService snapshotExecutor;
+
+    public MetricsRegistry() {
+        for (Stage stage : Stage.values()) stages.put(stage, new LatencyHistogram());
+        for (Counter counter : Counter.values()) counters.put(counter, new LongAdder());
+    }
+
+    /** The registry shared by the whole application. */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    public void increment(Counter counter) {
+        counters.get(counter).increment();
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /** Registers this registry with the platform MBean server; registering twice has no effect. */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already published
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends a JSON snapshot to {@code file} every {@code intervalSeconds}, until
+     * {@link #stopSnapshots()}. Replaces any snapshot schedule already running.
+     */
+    public synchronized void startSnapshots(Path file, long intervalSeconds) {
+        stopSnapshots();
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "qr-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, intervalSeconds);
+        snapshotExecutor.scheduleAtFixedRate(() -> writeSnapshot(file), interval, interval, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopSnapshots() {
+        if (snapshotExecutor == null) return;
+        snapshotExecutor.shutdownNow();
+        snapshotExecutor = null;
+    }
+
+    /** Counters and per-stage latency percentiles as one flat JSON line. */
+    public String toJson() {
+        return appendTo(new JsonLine().put("timestamp", System.currentTimeMillis())).toString();
+    }
+
+    JsonLine appendTo(JsonLine json) {
+        for (Counter counter : Counter.values()) json.put(counter.name().toLowerCase(Locale.ROOT), getCount(counter));
+        for (Stage stage : Stage.values()) {
+            String prefix = stage.name().toLowerCase(Locale.ROOT) + "_";
+            LatencyHistogram histogram = stages.get(stage);
+            json.put(prefix + "count", histogram.getCount())
+                .put(prefix + "mean_ms", histogram.getMeanNanos() / 1e6)
+                .put(prefix + "p50_ms", histogram.getPercentileMillis(50))
+                .put(prefix + "p99_ms", histogram.getPercentileMillis(99))
+                .put(prefix + "max_ms", histogram.getMaxNanos() / 1e6);
+        }
+        return json;
+    }
+
+    private void writeSnapshot(Path file) {
+        try {
+            Files.write(file, (toJson() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Could not write metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    @Override public long getFramesGrabbed() { return getCount(Counter.FRAMES_GRABBED); }
+    @Override public long getFramesSkipped() { return getCount(Counter.FRAMES_SKIPPED); }
+    @Override public long getFramesDropped() { return getCount(Counter.FRAMES_DROPPED); }
+    @Override public long getFramesDecoded() { return getCount(Counter.FRAMES_DECODED); }
+    @Override public long getFramesHit() { return getCount(Counter.FRAMES_HIT); }
+    @Override public long getDeduplicated() { return getCount(Counter.DEDUPLICATED); }
+
+    @Override public StageStatistics getCapture() { return new StageStatistics(stages.get(Stage.CAPTURE)); }
+    @Override public StageStatistics getLuminance() { return new StageStatistics(stages.get(Stage.LUMINANCE)); }
+    @Override public StageStatistics getBinarize() { return new StageStatistics(stages.get(Stage.BINARIZE)); }
+    @Override public StageStatistics getDecode() { return new StageStatistics(stages.get(Stage.DECODE)); }
+    @Override public StageStatistics getClassify() { return new StageStatistics(stages.get(Stage.CLASSIFY)); }
+    @Override public StageStatistics getUiDispatch() { return new StageStatistics(stages.get(Stage.UI_DISPATCH)); }
+
+    @Override
+    public String getSnapshotJson() {
+        return toJson();
+    }
+
+    @Override
+    public void resetStatistics() {
+        stages.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    /** Read-only summary of one stage, shown as a composite attribute in JMX consoles. */
+    public static class StageStatistics {
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        StageStatistics(LatencyHistogram histogram) {
+            this.count = histogram.getCount();
+            this.meanMillis = histogram.getMeanNanos() / 1e6;
+            this.p50Millis = histogram.getPercentileMillis(50);
+            this.p90Millis = histogram.getPercentileMillis(90);
+            this.p99Millis = histogram.getPercentileMillis(99);
+            this.maxMillis = histogram.getMaxNanos() / 1e6;
+        }
+
+        public long getCount() { return count; }
+        public double getMeanMillis() { return meanMillis; }
+        public double getP50Millis() { return p50Millis; }
+        public double getP90Millis() { return p90Millis; }
+        public double getP99Millis() { return p99Millis; }
+        public double getMaxMillis() { return maxMillis; }
+    }
+}
@@ -0,0 +1,27 @@
+package com.qrscanner;
+
+/**
+ * Management interface of the {@link MetricsRegistry}, registered as
+ * {@value MetricsRegistry#OBJECT_NAME}. Latencies are cumulative since start-up
+ * or the last {@link #resetStatistics()}.
+ */
+public interface MetricsRegistryMXBean {
+    long getFramesGrabbed();
+    long getFramesSkipped();
+    long getFramesDropped();
+    long getFramesDecoded();
+    long getFramesHit();
+    long getDeduplicated();
+
+    MetricsRegistry.StageStatistics getCapture();
+    MetricsRegistry.StageStatistics getLuminance();
+    MetricsRegistry.StageStatistics getBinarize();
+    MetricsRegistry.StageStatistics getDecode();
+    MetricsRegistry.StageStatistics getClassify();
+    MetricsRegistry.StageStatistics getUiDispatch();
+
+    /** Current metrics as one JSON line, the same format as the periodic snapshots. */
+    String getSnapshotJson();
+
+    void resetStatistics();
+}
@@ -0,0 +1,71 @@
+package com.qrscanner;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * {@link LuminanceSource} view over a reusable 8-bit luminance plane.
+ * <p>
+ * Unlike ZXing's {@code BufferedImageLuminanceSource}, this never copies or converts
+ * pixels: it reads straight from the plane owned by a pooled {@link ScanFrame}. Crops are
+ * views onto the same plane, and {@link #getMatrix()} hands out the plane itself when
+ * the view covers all of it.
+ */
+public class PooledLuminanceSource extends LuminanceSource {
+    private final byte[] luminances;
+    private final int dataWidth;
+    private final int dataHeight;
+    private final int left;
+    private final int top;
+
+    public PooledLuminanceSource(byte[] luminances, int dataWidth, int dataHeight) {
+        this(luminances, dataWidth, dataHeight, 0, 0, dataWidth, dataHeight);
+    }
+
+    public PooledLuminanceSource(byte[] luminances, int dataWidth, int dataHeight, int left, int top, int width, int height) {
+        super(width, height);
+        if (left + width > dataWidth || top + height > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        this.luminances = luminances;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) row = new byte[width];
+        System.arraycopy(luminances, (y + top) * dataWidth + left, row, 0, width);
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        if (width == dataWidth && height == dataHeight && luminances.length == width * height) {
+            return luminances;
+        }
+        byte[] matrix = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(luminances, (y + top) * dataWidth + left, matrix, y * width, width);
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new PooledLuminanceSource(luminances, dataWidth, dataHeight,
+            this.left + left, this.top + top, width, height);
+    }
+}
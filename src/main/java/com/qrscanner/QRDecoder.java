@@ -0,0 +1,476 @@
+package com.qrscanner;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.InvertedLuminanceSource;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tiered QR decoding engine behind {@link QRProcessor#decodeQRCode(BufferedImage)}.
+ * <p>
+ * Each {@link Tier} is one binarizer/hint combination, from a cheap pass on a
+ * downscaled image up to inverted-image decoding. The cheap tier always goes first;
+ * the fallback tiers after it are ordered by observed efficiency (hits per millisecond),
+ * recomputed from live statistics as scanning goes on. Fallbacks that have never hit
+ * keep their declared order. Instances are thread-safe.
+ */
+public class QRDecoder {
+    /**
+     * Longest side the fast tier decodes at; larger inputs are box-filtered down first.
+     * Small enough that 640x480 and larger camera frames are at least halved.
+     */
+    private static final int FAST_TIER_MAX_DIMENSION = 480;
+    /** Attempts between two reorderings of the tier list. */
+    private static final int REORDER_INTERVAL = 64;
+    /** In streaming mode, a fallback tier runs on every n-th missed frame. */
+    private static final int STREAMING_FALLBACK_EVERY = 2;
+    /** Images with at least this many pixels are decoded coarse-to-fine through an {@link ImagePyramid}. */
+    private static final long PYRAMID_MIN_PIXELS = 2_000_000;
+    /** Coarsest pyramid level, by longest side. */
+    private static final int PYRAMID_MIN_DIMENSION = 640;
+    /** Above this many pixels, full resolution is decoded as parallel tiles rather than as one image. */
+    private static final long TILE_MIN_PIXELS = 8_000_000;
+
+    private static final Map<DecodeHintType, Object> NO_HINTS = Collections.emptyMap();
+    private static final Map<DecodeHintType, Object> TRY_HARDER_HINTS = new EnumMap<>(DecodeHintType.class);
+    static {
+        TRY_HARDER_HINTS.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    }
+
+    /** Decode strategies, listed in their initial order. */
+    public enum Tier {
+        /** Hybrid binarizer on a downscaled image, without TRY_HARDER. */
+        FAST_DOWNSCALED,
+        /** Hybrid binarizer at full resolution with TRY_HARDER. */
+        HYBRID_TRY_HARDER,
+        /** Global histogram binarizer, for low-contrast or unevenly lit codes. */
+        GLOBAL_HISTOGRAM,
+        /** Light-on-dark codes; the equivalent of ZXing's ALSO_INVERTED hint. */
+        INVERTED
+    }
+
+    /**
+     * How hard to try on a miss. One-shot scans go through every tier; live camera
+     * frames only escalate occasionally, since another frame follows right away.
+     */
+    public enum Mode { EXHAUSTIVE, STREAMING }
+
+    private final ThreadLocal<QRCodeMultiReader> readers = ThreadLocal.withInitial(QRCodeMultiReader::new);
+    private final Map<Tier, TierStats> stats = new EnumMap<>(Tier.class);
+    private final AtomicLong attemptsSinceReorder = new AtomicLong();
+    private final AtomicInteger streamingMisses = new AtomicInteger();
+    private final AtomicLong expiredDecodes = new AtomicLong();
+    private final AtomicLongArray pyramidLevelHits = new AtomicLongArray(ImagePyramid.MAX_LEVELS);
+    // Per-thread scratch for large images, so page after page reuses the same luminance buffers
+    private final ThreadLocal<ScanFrame> scratchFrames = ThreadLocal.withInitial(ScanFrame::new);
+    private final ThreadLocal<ImagePyramid> pyramids = ThreadLocal.withInitial(ImagePyramid::new);
+    private final TileDecoder tileDecoder = new TileDecoder();
+    private final MetricsRegistry metrics = MetricsRegistry.getDefault();
+    // Tier of the most recent hit on each thread, reported in Flight Recorder events
+    private final ThreadLocal<Tier> lastHitTier = new ThreadLocal<>();
+    private volatile Tier[] tierOrder = Tier.values();
+
+    public QRDecoder() {
+        for (Tier tier : Tier.values()) stats.put(tier, new TierStats(tier));
+    }
+
+    /** Decodes a single QR code from an image, trying every tier before giving up. */
+    public Result decode(BufferedImage image) {
+        if (image == null) return null;
+        if (isLarge(image)) return first(runMultiScale(image, false, DecodeDeadline.unbounded()));
+        return decode(new BufferedImageLuminanceSource(image), Mode.EXHAUSTIVE);
+    }
+
+    /**
+     * Decodes a single QR code from a luminance source.
+     * @return the result with points in {@code source} coordinates, or {@code null} if no tier found a code.
+     */
+    public Result decode(LuminanceSource source, Mode mode) {
+        return first(run(source, mode, false, DecodeDeadline.unbounded()));
+    }
+
+    /**
+     * Decodes a frame from a stream, trying the tracker's region of interest first.
+     * The full frame is only decoded when the crop misses or there is no live region,
+     * and the tracker is updated with the outcome either way.
+     */
+    public Result decode(LuminanceSource source, Mode mode, RoiTracker tracker) {
+        return first(runTracked(source, mode, tracker, false, DecodeDeadline.unbounded()));
+    }
+
+    /** Decodes every QR code in an image, trying every tier until one finds something. */
+    public List<Result> decodeAll(BufferedImage image) {
+        return decodeAll(image, DecodeDeadline.unbounded());
+    }
+
+    /**
+     * Like {@link #decodeAll(BufferedImage)}, but stops trying further tiers and scales once the
+     * deadline expires. Large images, such as PDF pages and screen captures, are decoded
+     * coarse-to-fine, and then at full resolution for any smaller codes the coarse scales missed.
+     */
+    public List<Result> decodeAll(BufferedImage image, DecodeDeadline deadline) {
+        if (image == null || deadline.isExpired()) return Collections.emptyList();
+        if (isLarge(image)) return runMultiScale(image, true, deadline);
+        return run(new BufferedImageLuminanceSource(image), Mode.EXHAUSTIVE, true, deadline);
+    }
+
+    /**
+     * Decodes every QR code in a luminance source. Tiers are tried in order and the
+     * first tier that finds at least one code wins; codes it missed are not searched
+     * for by the remaining tiers.
+     * @return distinct results with points in {@code source} coordinates; empty if nothing was found.
+     */
+    public List<Result> decodeAll(LuminanceSource source, Mode mode) {
+        return run(source, mode, true, DecodeDeadline.unbounded());
+    }
+
+    /** Multi-code counterpart of {@link #decode(LuminanceSource, Mode, RoiTracker)}. */
+    public List<Result> decodeAll(LuminanceSource source, Mode mode, RoiTracker tracker) {
+        return runTracked(source, mode, tracker, true, DecodeDeadline.unbounded());
+    }
+
+    /**
+     * Deadline-bounded {@link #decodeAll(LuminanceSource, Mode, RoiTracker)}. The deadline is checked
+     * before every tier; a tier already running is allowed to finish, since ZXing cannot be interrupted.
+     */
+    public List<Result> decodeAll(LuminanceSource source, Mode mode, RoiTracker tracker, DecodeDeadline deadline) {
+        return runTracked(source, mode, tracker, true, deadline);
+    }
+
+    /** Current tier order: the fast tier, then the fallbacks, most efficient first. */
+    public List<Tier> getTierOrder() {
+        return Collections.unmodifiableList(Arrays.asList(tierOrder));
+    }
+
+    /** Number of decode calls that ran out of time or were cancelled before trying every tier they wanted to. */
+    public long getExpiredDecodes() {
+        return expiredDecodes.get();
+    }
+
+    /** Hits per pyramid level for large images; index 0 is full resolution, index n is 2^n times smaller. */
+    public long[] getPyramidLevelHits() {
+        long[] hits = new long[pyramidLevelHits.length()];
+        for (int i = 0; i < hits.length; i++) hits[i] = pyramidLevelHits.get(i);
+        return hits;
+    }
+
+    /** Live statistics for every tier, in declaration order. */
+    public List<TierStats> getTierStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    private static boolean isLarge(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() >= PYRAMID_MIN_PIXELS;
+    }
+
+    /**
+     * Tries a cheap hybrid pass on each pyramid level from coarsest to finest, then the
+     * full tier ladder at full resolution. The fast tier is skipped there, because the
+     * pyramid has already covered the downscaled views it would decode. Very large
+     * images are decoded at full resolution as parallel tiles first.
+     * <p>
+     * A single-code decode stops at the first level with a hit. A multi-code decode always
+     * goes on to full resolution, since small codes on the same page are only readable
+     * there, and merges the codes of every level by text.
+     */
+    private List<Result> runMultiScale(BufferedImage image, boolean multi, DecodeDeadline deadline) {
+        ScanFrame frame = scratchFrames.get();
+        frame.loadImage(image);
+        ImagePyramid pyramid = pyramids.get();
+        pyramid.build(frame.getLuminances(), frame.getWidth(), frame.getHeight(), PYRAMID_MIN_DIMENSION);
+        List<Result> coarse = new ArrayList<>();
+        try {
+            for (int level = pyramid.getLevelCount() - 1; level >= 1; level--) {
+                if (expired(deadline)) return coarse;
+                List<Result> results = Collections.emptyList();
+                try {
+                    results = read(new HybridBinarizer(pyramid.getLevel(level)), NO_HINTS, multi);
+                } catch (ReaderException e) {
+                    // Nothing at this scale; try the next finer one
+                }
+                if (!results.isEmpty()) {
+                    pyramidLevelHits.incrementAndGet(level);
+                    int scale = pyramid.getScale(level);
+                    for (Result result : results) coarse.add(transform(result, scale, scale / 2f, scale / 2f));
+                    if (!multi) return coarse;
+                }
+            }
+            LuminanceSource fullResolution = frame.getLuminanceSource();
+            List<Result> results;
+            if (expired(deadline)) {
+                results = Collections.emptyList();
+            } else if ((long) frame.getWidth() * frame.getHeight() >= TILE_MIN_PIXELS) {
+                results = decodeTiles(fullResolution, multi, deadline);
+            } else {
+                results = run(fullResolution, Mode.EXHAUSTIVE, multi, deadline, true);
+            }
+            if (!results.isEmpty()) pyramidLevelHits.incrementAndGet(0);
+            if (coarse.isEmpty()) return results;
+            // Full-resolution points are the more precise, so those win for codes found at both.
+            Map<String, Result> merged = new LinkedHashMap<>();
+            for (Result result : results) merged.putIfAbsent(result.getText(), result);
+            for (Result result : coarse) merged.putIfAbsent(result.getText(), result);
+            return new ArrayList<>(merged.values());
+        } finally {
+            pyramid.release();
+        }
+    }
+
+    /**
+     * Decodes overlapping tiles with the hybrid TRY_HARDER tier in parallel. If no tile
+     * finds anything, the whole image still gets the remaining fallback tiers.
+     */
+    private List<Result> decodeTiles(LuminanceSource source, boolean multi, DecodeDeadline deadline) {
+        if (expired(deadline)) return Collections.emptyList();
+        List<Result> results = tileDecoder.decode(source, tile -> attempt(Tier.HYBRID_TRY_HARDER, tile, multi), deadline);
+        if (!results.isEmpty()) return multi ? results : results.subList(0, 1);
+        for (Tier tier : tierOrder) {
+            if (tier == Tier.FAST_DOWNSCALED || tier == Tier.HYBRID_TRY_HARDER) continue;
+            if (expired(deadline)) break;
+            results = attempt(tier, source, multi);
+            if (!results.isEmpty()) break;
+        }
+        return results;
+    }
+
+    private List<Result> run(LuminanceSource source, Mode mode, boolean multi, DecodeDeadline deadline) {
+        return run(source, mode, multi, deadline, false);
+    }
+
+    private List<Result> run(LuminanceSource source, Mode mode, boolean multi, DecodeDeadline deadline, boolean skipFastTier) {
+        if (expired(deadline)) return Collections.emptyList();
+        Tier[] order = skipFastTier ? without(tierOrder, Tier.FAST_DOWNSCALED) : tierOrder;
+        List<Result> results = attempt(order[0], source, multi);
+        if (!results.isEmpty()) return results;
+        if (mode == Mode.STREAMING) {
+            int misses = streamingMisses.incrementAndGet();
+            if (misses % STREAMING_FALLBACK_EVERY != 0 || order.length < 2 || expired(deadline)) return results;
+            int fallback = 1 + (misses / STREAMING_FALLBACK_EVERY) % (order.length - 1);
+            return attempt(order[fallback], source, multi);
+        }
+        for (int i = 1; i < order.length && results.isEmpty(); i++) {
+            if (expired(deadline)) break;
+            results = attempt(order[i], source, multi);
+        }
+        return results;
+    }
+
+    private static Tier[] without(Tier[] order, Tier excluded) {
+        return Arrays.stream(order).filter(tier -> tier != excluded).toArray(Tier[]::new);
+    }
+
+    private boolean expired(DecodeDeadline deadline) {
+        if (!deadline.isExpired()) return false;
+        expiredDecodes.incrementAndGet();
+        return true;
+    }
+
+    private List<Result> runTracked(LuminanceSource source, Mode mode, RoiTracker tracker, boolean multi, DecodeDeadline deadline) {
+        if (tracker == null || !source.isCropSupported()) return run(source, mode, multi, deadline);
+        if (expired(deadline)) return Collections.emptyList();
+        Rectangle region = tracker.currentRegion(source.getWidth(), source.getHeight());
+        if (region != null) {
+            LuminanceSource crop = source.crop(region.x, region.y, region.width, region.height);
+            List<Result> results = attempt(tierOrder[0], crop, multi);
+            if (!results.isEmpty()) {
+                List<Result> mapped = new ArrayList<>(results.size());
+                for (Result result : results) mapped.add(transform(result, 1, region.x, region.y));
+                tracker.recordHit(allPoints(mapped));
+                return mapped;
+            }
+            tracker.recordMiss();
+        }
+        List<Result> results = run(source, mode, multi, deadline);
+        if (!results.isEmpty()) tracker.recordHit(allPoints(results));
+        return results;
+    }
+
+    private List<Result> attempt(Tier tier, LuminanceSource source, boolean multi) {
+        long started = System.nanoTime();
+        List<Result> results = Collections.emptyList();
+        try {
+            results = decodeWithTier(tier, source, multi);
+        } catch (ReaderException e) {
+            // Not found, checksum or format error: all of them are a miss for this tier
+        } catch (RuntimeException e) {
+            // ZXing rejects some degenerate inputs with unchecked exceptions; the next tier may still cope.
+        } finally {
+            stats.get(tier).record(!results.isEmpty(), System.nanoTime() - started);
+            if (!results.isEmpty()) lastHitTier.set(tier);
+            if (attemptsSinceReorder.incrementAndGet() >= REORDER_INTERVAL) reorderTiers();
+        }
+        return results;
+    }
+
+    /**
+     * Returns and forgets the tier of the last hit on the calling thread, or {@code null}
+     * if there was none since the previous call. Hits found on tile threads are not seen here.
+     */
+    Tier takeLastHitTier() {
+        Tier tier = lastHitTier.get();
+        lastHitTier.remove();
+        return tier;
+    }
+
+    private List<Result> decodeWithTier(Tier tier, LuminanceSource source, boolean multi) throws ReaderException {
+        switch (tier) {
+            case FAST_DOWNSCALED: {
+                int factor = downscaleFactor(source);
+                // A sliver thinner than the factor would scale to nothing along its short side.
+                if (factor == 1 || Math.min(source.getWidth(), source.getHeight()) < factor) {
+                    return read(new HybridBinarizer(source), NO_HINTS, multi);
+                }
+                List<Result> results = read(new HybridBinarizer(downscale(source, factor)), NO_HINTS, multi);
+                List<Result> mapped = new ArrayList<>(results.size());
+                for (Result result : results) mapped.add(transform(result, factor, factor / 2f, factor / 2f));
+                return mapped;
+            }
+            case GLOBAL_HISTOGRAM:
+                return read(new GlobalHistogramBinarizer(source), TRY_HARDER_HINTS, multi);
+            case INVERTED:
+                return read(new HybridBinarizer(new InvertedLuminanceSource(source)), TRY_HARDER_HINTS, multi);
+            case HYBRID_TRY_HARDER:
+            default:
+                return read(new HybridBinarizer(source), TRY_HARDER_HINTS, multi);
+        }
+    }
+
+    private List<Result> read(Binarizer binarizer, Map<DecodeHintType, Object> hints, boolean multi) throws ReaderException {
+        QRCodeMultiReader reader = readers.get();
+        BinaryBitmap bitmap = new BinaryBitmap(binarizer);
+        long started = System.nanoTime();
+        // The bitmap caches its matrix, so binarizing up front only splits the timing; the reader reuses it.
+        bitmap.getBlackMatrix();
+        long binarized = System.nanoTime();
+        metrics.record(MetricsRegistry.Stage.BINARIZE, binarized - started);
+        try {
+            if (!multi) return Collections.singletonList(reader.decode(bitmap, hints));
+            Map<String, Result> distinct = new LinkedHashMap<>();
+            for (Result result : reader.decodeMultiple(bitmap, hints)) distinct.putIfAbsent(result.getText(), result);
+            return new ArrayList<>(distinct.values());
+        } finally {
+            metrics.record(MetricsRegistry.Stage.DECODE, System.nanoTime() - binarized);
+        }
+    }
+
+    private static Result first(List<Result> results) {
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    private static ResultPoint[] allPoints(List<Result> results) {
+        List<ResultPoint> points = new ArrayList<>();
+        for (Result result : results) {
+            if (result.getResultPoints() != null) points.addAll(Arrays.asList(result.getResultPoints()));
+        }
+        return points.toArray(new ResultPoint[0]);
+    }
+
+    private synchronized void reorderTiers() {
+        if (attemptsSinceReorder.get() < REORDER_INTERVAL) return;
+        attemptsSinceReorder.set(0);
+        Tier[] order = Tier.values();
+        // The fast tier stays pinned first; the sort is stable, so fallbacks without hits keep their order.
+        Arrays.sort(order, 1, order.length, Comparator.comparingDouble((Tier tier) -> stats.get(tier).score()).reversed());
+        tierOrder = order;
+    }
+
+    private static int downscaleFactor(LuminanceSource source) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        return (longest + FAST_TIER_MAX_DIMENSION - 1) / FAST_TIER_MAX_DIMENSION;
+    }
+
+    /** Box-filters the source down by an integer factor. */
+    private static LuminanceSource downscale(LuminanceSource source, int factor) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int scaledWidth = width / factor;
+        int scaledHeight = height / factor;
+        byte[] matrix = source.getMatrix();
+        byte[] scaled = new byte[scaledWidth * scaledHeight];
+        int area = factor * factor;
+        for (int y = 0; y < scaledHeight; y++) {
+            for (int x = 0; x < scaledWidth; x++) {
+                int sum = 0;
+                int offset = y * factor * width + x * factor;
+                for (int dy = 0; dy < factor; dy++, offset += width) {
+                    for (int dx = 0; dx < factor; dx++) sum += matrix[offset + dx] & 0xFF;
+                }
+                scaled[y * scaledWidth + x] = (byte) (sum / area);
+            }
+        }
+        return new PlanarYUVLuminanceSource(scaled, scaledWidth, scaledHeight, 0, 0, scaledWidth, scaledHeight, false);
+    }
+
+    /** Maps result points back to the original image with {@link DecodeResult#mapPoints}. */
+    static Result transform(Result result, int scale, float offsetX, float offsetY) {
+        ResultPoint[] points = result.getResultPoints();
+        if (points == null) return result;
+        ResultPoint[] mapped = DecodeResult.mapPoints(points, scale, offsetX, offsetY);
+        Result transformed = new Result(result.getText(), result.getRawBytes(), mapped, result.getBarcodeFormat(), result.getTimestamp());
+        transformed.putAllMetadata(result.getResultMetadata());
+        return transformed;
+    }
+
+    /** Hit-rate and cost counters for one tier. */
+    public static class TierStats {
+        private final Tier tier;
+        private final AtomicLong attempts = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        TierStats(Tier tier) {
+            this.tier = tier;
+        }
+
+        void record(boolean hit, long nanos) {
+            attempts.incrementAndGet();
+            if (hit) hits.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+        }
+
+        /** Observed hits per millisecond spent; zero until the tier has hit at least once. */
+        double score() {
+            long hitCount = hits.get();
+            if (hitCount == 0) return 0.0;
+            return hitCount / Math.max(totalNanos.get() / 1_000_000.0, 0.01);
+        }
+
+        public Tier getTier() { return tier; }
+        public long getAttempts() { return attempts.get(); }
+        public long getHits() { return hits.get(); }
+        public long getTotalNanos() { return totalNanos.get(); }
+
+        public double getHitRate() {
+            long tries = attempts.get();
+            return tries == 0 ? 0.0 : hits.get() / (double) tries;
+        }
+
+        public double getAverageMillis() {
+            long tries = attempts.get();
+            return tries == 0 ? 0.0 : totalNanos.get() / (double) tries / 1_000_000.0;
+        }
+    }
+}
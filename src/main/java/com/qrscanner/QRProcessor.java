@@ -1,11 +1,8 @@
 package com.qrscanner;
 
 import com.google.zxing.*;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
-import com.google.zxing.common.HybridBinarizer;
-import com.google.zxing.multi.qrcode.QRCodeMultiReader;
 import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
@@ -17,15 +14,21 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class QRProcessor {
     private final QRScannerApp parentApp;
-    private final QRCodeMultiReader qrReader;
+    private final QRDecoder decoder;
     private final WiFiManager wifiManager;
     private static final Pattern URL_PATTERN = Pattern.compile("^(https?|ftp)://[^\\s/$.?#].[^\\s]*$", Pattern.CASE_INSENSITIVE);
     
@@ -34,7 +37,7 @@ public class QRProcessor {
     public QRProcessor(QRScannerApp parentApp) {
         this.parentApp = parentApp;
         this.wifiManager = new WiFiManager();
-        this.qrReader = new QRCodeMultiReader();
+        this.decoder = new QRDecoder();
     }
 
     /**
@@ -57,15 +60,84 @@ public class QRProcessor {
     // ... (rest of the file is unchanged) ...
     public String decodeQRCode(BufferedImage image) { /* ... same as before ... */
         if (image == null) return null;
+        DecodeEvent event = beginDecodeEvent("decodeQRCode", image.getWidth(), image.getHeight());
+        String text = null;
         try {
-            LuminanceSource source = new BufferedImageLuminanceSource(image);
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-            Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
-            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-            Result result = qrReader.decode(bitmap, hints);
-            return result.getText();
-        } catch (Exception e) { return null; }
+            Result result = decoder.decode(image);
+            text = result != null ? result.getText() : null;
+        } catch (Exception e) { /* treated as a miss */ }
+        commitDecodeEvent(event, text == null ? Collections.emptyList() : Collections.singletonList(new DecodeResult(text, null)));
+        return text;
     }
+
+    /**
+     * Decodes every QR code in an image, e.g. a label sheet or a shipping manifest.
+     * @return distinct results with their positions; empty if nothing was found.
+     */
+    public List<DecodeResult> decodeAll(BufferedImage image) {
+        return decodeAll(image, DecodeDeadline.unbounded());
+    }
+
+    /** Like {@link #decodeAll(BufferedImage)}, but gives up on further attempts once the deadline expires. */
+    public List<DecodeResult> decodeAll(BufferedImage image, DecodeDeadline deadline) {
+        if (image == null) return Collections.emptyList();
+        DecodeEvent event = beginDecodeEvent("decodeAll", image.getWidth(), image.getHeight());
+        List<DecodeResult> results;
+        try {
+            results = toDecodeResults(decoder.decodeAll(image, deadline));
+        } catch (Exception e) { results = Collections.emptyList(); }
+        commitDecodeEvent(event, results);
+        return results;
+    }
+
+    /**
+     * Decodes every QR code in a live camera frame. Unlike {@link #decodeAll(BufferedImage)} this
+     * does not run every fallback tier on a miss, because the next frame is only milliseconds away.
+     * When a tracker is given, the area around the last hit is decoded first. The deadline
+     * lets the caller bound the time spent and cancel the call from another thread.
+     */
+    public List<DecodeResult> decodeFrame(LuminanceSource source, RoiTracker tracker, DecodeDeadline deadline) {
+        if (source == null) return Collections.emptyList();
+        DecodeEvent event = beginDecodeEvent("decodeFrame", source.getWidth(), source.getHeight());
+        List<DecodeResult> results;
+        try {
+            results = toDecodeResults(decoder.decodeAll(source, QRDecoder.Mode.STREAMING, tracker, deadline));
+        } catch (Exception e) { results = Collections.emptyList(); }
+        commitDecodeEvent(event, results);
+        return results;
+    }
+
+    private DecodeEvent beginDecodeEvent(String operation, int width, int height) {
+        decoder.takeLastHitTier();
+        DecodeEvent event = new DecodeEvent();
+        event.begin();
+        event.operation = operation;
+        event.width = width;
+        event.height = height;
+        return event;
+    }
+
+    /** Fills in the outcome and commits; payload types are only classified while a recording wants the event. */
+    private void commitDecodeEvent(DecodeEvent event, List<DecodeResult> results) {
+        QRDecoder.Tier tier = decoder.takeLastHitTier();
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.tier = tier != null ? tier.name() : "";
+        event.success = !results.isEmpty();
+        event.codes = results.size();
+        Set<QRCodeType> types = EnumSet.noneOf(QRCodeType.class);
+        for (DecodeResult result : results) types.add(classify(result.getText()));
+        event.payloadType = types.stream().map(Enum::name).collect(Collectors.joining(","));
+        event.commit();
+    }
+
+    private static List<DecodeResult> toDecodeResults(List<Result> results) {
+        List<DecodeResult> decoded = new ArrayList<>(results.size());
+        for (Result result : results) decoded.add(DecodeResult.of(result));
+        return decoded;
+    }
+
+    public QRDecoder getDecoder() { return decoder; }
     public void processQRCode(String qrContent) { /* ... same as before ... */
         if (qrContent == null || qrContent.trim().isEmpty()) return;
         QRCodeType type = determineQRType(qrContent);
@@ -81,7 +153,15 @@ public class QRProcessor {
             }
         });
     }
-    public QRCodeType determineQRType(String content) { /* ... same as before ... */
+    public QRCodeType determineQRType(String content) {
+        long started = System.nanoTime();
+        try {
+            return classify(content);
+        } finally {
+            MetricsRegistry.getDefault().record(MetricsRegistry.Stage.CLASSIFY, System.nanoTime() - started);
+        }
+    }
+    private QRCodeType classify(String content) { /* ... same as before ... */
         String upperContent = content.toUpperCase();
         if (upperContent.startsWith("WIFI:")) return QRCodeType.WIFI;
         if (upperContent.startsWith("BEGIN:VCARD")) return QRCodeType.VCARD;
@@ -102,7 +182,7 @@ public class QRProcessor {
             showQRContent(wifiQR);
         }
     }
-    private WiFiCredentials parseWiFiQR(String wifiQR) { /* ... same as before ... */
+    public WiFiCredentials parseWiFiQR(String wifiQR) { /* ... same as before ... */
         Map<String, String> params = new HashMap<>();
         String content = wifiQR.substring(5);
         for (String part : content.split("(?<!\\\\);")) {
@@ -144,7 +224,7 @@ public class QRProcessor {
         parentApp.updateStatus("SMS action detected.");
         showSmsDialog(smsData);
     }
-    private Map<String, String> parseVCard(String vcardData) { /* ... same as before ... */
+    public Map<String, String> parseVCard(String vcardData) { /* ... same as before ... */
         Map<String, String> vcard = new HashMap<>();
         Pattern fnPattern = Pattern.compile("^FN:(.*)$", Pattern.MULTILINE);
         Pattern telPattern = Pattern.compile("^TEL.*:(.*)$", Pattern.MULTILINE);
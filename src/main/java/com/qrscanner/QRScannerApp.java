@@ -1,15 +1,10 @@
 package com.qrscanner;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
-
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
@@ -17,21 +12,34 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
-import java.util.LinkedHashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 public class QRScannerApp extends JFrame {
     private static final String APP_NAME = "QR WiFi Scanner";
     private static final String VERSION = "1.0.0";
+    private static final long SCREEN_SCAN_BUDGET_MILLIS = 3000;
     private static final String UPDATE_URL = "https://raw.githubusercontent.com/JayJay247in/qr-wifi-scanner/refs/heads/main/version.txt";
 
     private final SettingsManager settingsManager;
     private final ScanHistoryManager historyManager;
     private final HotkeyManager hotkeyManager;
+    private final DuplicateSuppressor duplicateSuppressor;
     
     private CameraPanel cameraPanel;
     private QRProcessor qrProcessor;
+    private ScanRecorder scanRecorder;
+    private FileScanner fileScanner;
+    private ScreenScanner screenScanner;
+    private DecodeCache decodeCache;
+    private HotFolderWatcher hotFolderWatcher;
+    private ScreenWatcher screenWatcher;
+    private JCheckBoxMenuItem watchScreenItem;
     private SystemTrayManager trayManager;
     private JLabel statusLabel;
     private JButton scanButton;
@@ -39,19 +47,27 @@ public class QRScannerApp extends JFrame {
     public QRScannerApp() {
         this.settingsManager = new SettingsManager();
         this.historyManager = new ScanHistoryManager(settingsManager);
+        this.duplicateSuppressor = new DuplicateSuppressor(settingsManager.getDuplicateWindow());
         
         initializeComponents();
         setupUI();
         setupEventHandlers();
 
         this.qrProcessor = new QRProcessor(this);
+        this.scanRecorder = new ScanRecorder(qrProcessor, duplicateSuppressor, historyManager);
+        this.fileScanner = new FileScanner(qrProcessor);
+        this.screenScanner = new ScreenScanner(qrProcessor);
         this.trayManager = new SystemTrayManager(this);
         this.cameraPanel.setQRProcessor(qrProcessor);
         this.cameraPanel.setScanInterval(settingsManager.getScanInterval());
+        this.cameraPanel.setDecoderThreads(settingsManager.getDecoderThreads());
 
         this.hotkeyManager = new HotkeyManager(this::scanScreenForQRCode);
         this.hotkeyManager.initialize();
 
+        startWatchingHotFolders();
+        if (settingsManager.isScreenWatchEnabled()) setScreenWatching(true);
+
         checkForUpdates();
     }
 
@@ -171,8 +187,19 @@ public class QRScannerApp extends JFrame {
         settingsItem.addActionListener(e -> showSettings());
         JMenuItem historyItem = new JMenuItem("View History...");
         historyItem.addActionListener(e -> showHistory());
+        JMenuItem watchFoldersItem = new JMenuItem("Watch Folders...");
+        watchFoldersItem.addActionListener(e -> chooseHotFolders());
+        JMenuItem stopWatchingItem = new JMenuItem("Stop Watching Folders");
+        stopWatchingItem.addActionListener(e -> stopWatchingHotFolders());
+        watchScreenItem = new JCheckBoxMenuItem("Watch Screen for QR Codes");
+        watchScreenItem.addActionListener(e -> setScreenWatching(watchScreenItem.isSelected()));
         toolsMenu.add(settingsItem);
         toolsMenu.add(historyItem);
+        toolsMenu.addSeparator();
+        toolsMenu.add(watchFoldersItem);
+        toolsMenu.add(stopWatchingItem);
+        toolsMenu.addSeparator();
+        toolsMenu.add(watchScreenItem);
         JMenu helpMenu = new JMenu("Help");
         JMenuItem aboutItem = new JMenuItem("About");
         aboutItem.addActionListener(e -> showAboutDialog());
@@ -185,20 +212,19 @@ public class QRScannerApp extends JFrame {
     
     private void scanScreenForQRCode() {
         trayManager.showTrayMessage("Scanning screen for QR Code...", "Scan Initiated");
-        SwingWorker<String, Void> worker = new SwingWorker<>() {
+        SwingWorker<List<DecodeResult>, Void> worker = new SwingWorker<>() {
             @Override
-            protected String doInBackground() throws Exception {
-                Rectangle screenRect = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
-                BufferedImage capture = new Robot().createScreenCapture(screenRect);
-                return qrProcessor.decodeQRCode(capture);
+            protected List<DecodeResult> doInBackground() throws Exception {
+                return screenScanner.scan(settingsManager.getScreenScanMode(), DecodeDeadline.after(SCREEN_SCAN_BUDGET_MILLIS));
             }
             @Override
             protected void done() {
                 try {
-                    String qrContent = get();
-                    if (qrContent != null) {
-                        trayManager.showTrayMessage("QR Code found on screen!", "Success");
-                        onQRCodeDetected(qrContent);
+                    List<DecodeResult> results = get();
+                    if (!results.isEmpty()) {
+                        String found = results.size() == 1 ? "QR Code found on screen!" : results.size() + " QR Codes found on screen!";
+                        trayManager.showTrayMessage(found, "Success");
+                        onQRCodesDetected(results, ScanSource.SCREEN);
                     } else {
                         trayManager.showTrayMessage("No QR Code was found on the screen.", "Scan Complete");
                     }
@@ -212,12 +238,15 @@ public class QRScannerApp extends JFrame {
     
     private void scanFromFile() {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Select QR Code Image(s) or PDF(s)");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("Image & PDF Files", "png", "jpg", "jpeg", "bmp", "pdf"));
+        fileChooser.setDialogTitle("Select QR Code Image(s), PDF(s) or ZIP Archive(s)");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Image, PDF & ZIP Files", FileScanner.SUPPORTED_EXTENSIONS.toArray(new String[0])));
         fileChooser.setMultiSelectionEnabled(true);
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             File[] selectedFiles = fileChooser.getSelectedFiles();
-            if (selectedFiles.length == 1) {
+            if (selectedFiles.length == 1 && FileScanner.isArchive(selectedFiles[0])) {
+                // An archive is a batch of its own; the batch dialog decodes its entries in parallel.
+                processBatchFilesWithWorker(selectedFiles);
+            } else if (selectedFiles.length == 1) {
                 updateStatus("Scanning file: " + selectedFiles[0].getName());
                 processSingleFileWithWorker(selectedFiles[0]);
             } else if (selectedFiles.length > 1) {
@@ -227,14 +256,14 @@ public class QRScannerApp extends JFrame {
     }
     
     private void processSingleFileWithWorker(File file) {
-        SwingWorker<String, Void> worker = new SwingWorker<>() {
+        SwingWorker<List<DecodeResult>, Void> worker = new SwingWorker<>() {
             @Override
-            protected String doInBackground() throws Exception { return scanFileForQRCode(file); }
+            protected List<DecodeResult> doInBackground() throws Exception { return scanFileForQRCode(file); }
             @Override
             protected void done() {
                 try {
-                    String qrContent = get();
-                    if (qrContent != null) onQRCodeDetected(qrContent);
+                    List<DecodeResult> results = get();
+                    if (!results.isEmpty()) onQRCodesDetected(results, ScanSource.FILE);
                     else showError("No QR code could be found in the selected file.");
                 } catch (Exception e) {
                     showError("Failed to process file: " + e.getMessage());
@@ -245,72 +274,120 @@ public class QRScannerApp extends JFrame {
     }
     
     private void processBatchFilesWithWorker(File[] files) {
-        SwingWorker<Map<String, String>, String> worker = new SwingWorker<>() {
-            @Override
-            protected Map<String, String> doInBackground() throws Exception {
-                Map<String, String> results = new LinkedHashMap<>();
-                for (int i = 0; i < files.length; i++) {
-                    publish("Scanning file " + (i + 1) + " of " + files.length + ": " + files[i].getName());
-                    String qrContent = scanFileForQRCode(files[i]);
-                    if (qrContent != null) {
-                        results.put(files[i].getName(), qrContent);
-                    }
-                }
-                return results;
-            }
+        updateStatus("Scanning " + files.length + " files...");
+        BatchScanDialog dialog = new BatchScanDialog(this, qrProcessor, files, settingsManager.getDecoderThreads(), decodeCache(), results -> {
+            scanRecorder.record(results, ScanSource.FILE);
+            updateStatus("Batch scan complete: " + results.size() + " QR code(s) found.");
+        });
+        dialog.start();
+    }
+    
+    /**
+     * Scans an image or every page of a PDF for QR codes.
+     * @return all distinct codes found, tagged with their page for PDFs; empty if there were none.
+     */
+    private List<DecodeResult> scanFileForQRCode(File file) throws IOException {
+        fileScanner.setDecodeCache(decodeCache());
+        return fileScanner.scan(file);
+    }
+
+    private void chooseHotFolders() {
+        JFileChooser folderChooser = new JFileChooser();
+        folderChooser.setDialogTitle("Select Folder(s) to Watch for New Images and PDFs");
+        folderChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        folderChooser.setMultiSelectionEnabled(true);
+        if (folderChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            List<String> folders = new ArrayList<>();
+            for (File folder : folderChooser.getSelectedFiles()) folders.add(folder.getAbsolutePath());
+            settingsManager.setHotFolders(folders);
+            startWatchingHotFolders();
+        }
+    }
+
+    private void stopWatchingHotFolders() {
+        settingsManager.setHotFolders(Collections.emptyList());
+        if (hotFolderWatcher != null) hotFolderWatcher.stop();
+        updateStatus("Stopped watching folders.");
+    }
+
+    /**
+     * (Re)starts watching the folders saved in the settings. Codes in new files go straight
+     * to the history rather than popping up dialogs, since a scanner may drop thousands at once.
+     */
+    private void startWatchingHotFolders() {
+        if (hotFolderWatcher != null) hotFolderWatcher.stop();
+        List<Path> folders = new ArrayList<>();
+        for (String folder : settingsManager.getHotFolders()) {
+            Path path = Paths.get(folder);
+            if (Files.isDirectory(path)) folders.add(path);
+            else System.err.println("Hot folder no longer exists: " + folder);
+        }
+        if (folders.isEmpty()) return;
+        hotFolderWatcher = new HotFolderWatcher(qrProcessor, settingsManager.getDecoderThreads(), new BatchScanner.Listener() {
             @Override
-            protected void process(List<String> chunks) {
-                updateStatus(chunks.get(chunks.size() - 1));
+            public void fileScanned(BatchScanner.FileResult result) {
+                SwingUtilities.invokeLater(() -> onHotFolderFileScanned(result));
             }
             @Override
-            protected void done() {
-                try {
-                    Map<String, String> results = get();
-                    updateStatus("Batch scan complete.");
-                    if (results.isEmpty()) {
-                        JOptionPane.showMessageDialog(QRScannerApp.this, "No QR codes were found in any of the selected files.", "Batch Scan Complete", JOptionPane.INFORMATION_MESSAGE);
-                        return;
-                    }
-                    for (Map.Entry<String, String> entry : results.entrySet()) {
-                        String qrContent = entry.getValue();
-                        String qrType = qrProcessor.determineQRType(qrContent).name();
-                        historyManager.addHistoryItem(qrContent, qrType);
-                    }
-                    StringBuilder summary = new StringBuilder("Found " + results.size() + " QR code(s) in " + files.length + " files:\n\n");
-                    for (Map.Entry<String, String> entry : results.entrySet()) {
-                        summary.append("File: ").append(entry.getKey()).append("\n");
-                        summary.append("Content: ").append(entry.getValue()).append("\n\n");
-                    }
-                    JTextArea textArea = new JTextArea(summary.toString());
-                    textArea.setEditable(false);
-                    JScrollPane scrollPane = new JScrollPane(textArea);
-                    scrollPane.setPreferredSize(new Dimension(500, 300));
-                    JOptionPane.showMessageDialog(QRScannerApp.this, scrollPane, "Batch Scan Results", JOptionPane.INFORMATION_MESSAGE);
-                } catch (Exception e) {
-                    showError("An error occurred during batch processing: " + e.getMessage());
-                }
-            }
-        };
-        worker.execute();
+            public void batchFinished(boolean cancelled) { }
+        });
+        hotFolderWatcher.setDecodeCache(decodeCache());
+        try {
+            hotFolderWatcher.start(folders);
+            updateStatus("Watching " + folders.size() + " folder(s) for new files...");
+        } catch (IOException e) {
+            showError("Could not watch folders: " + e.getMessage());
+        }
     }
-    
-    private String scanFileForQRCode(File file) throws IOException {
-        String extension = file.getName().substring(file.getName().lastIndexOf('.') + 1).toLowerCase();
-        if ("pdf".equals(extension)) {
-            try (PDDocument document = PDDocument.load(file)) {
-                PDFRenderer pdfRenderer = new PDFRenderer(document);
-                for (int pageNum = 0; pageNum < document.getNumberOfPages(); ++pageNum) {
-                    BufferedImage image = pdfRenderer.renderImageWithDPI(pageNum, 300);
-                    String qrContent = qrProcessor.decodeQRCode(image);
-                    if (qrContent != null) return qrContent;
-                }
+
+    /**
+     * Turns continuous screen watching on or off and remembers the choice. Codes found go
+     * through the usual duplicate window, so a code left on screen is reported once.
+     */
+    private void setScreenWatching(boolean enabled) {
+        settingsManager.setScreenWatchEnabled(enabled);
+        if (screenWatcher == null) {
+            screenWatcher = new ScreenWatcher(qrProcessor, results -> onQRCodesDetected(results, ScanSource.SCREEN));
+        }
+        if (enabled) {
+            screenWatcher.setIntervalMillis(settingsManager.getScreenWatchInterval());
+            try {
+                screenWatcher.start();
+                updateStatus("Watching the screen for QR codes...");
+            } catch (AWTException | SecurityException e) {
+                settingsManager.setScreenWatchEnabled(false);
+                enabled = false;
+                showError("Could not capture the screen: " + e.getMessage());
             }
         } else {
-            BufferedImage image = ImageIO.read(file);
-            if (image != null) return qrProcessor.decodeQRCode(image);
-            else throw new IOException("Could not read image file: " + file.getName());
+            screenWatcher.stop();
+            updateStatus("Stopped watching the screen.");
+        }
+        watchScreenItem.setSelected(enabled);
+    }
+
+    private void onHotFolderFileScanned(BatchScanner.FileResult result) {
+        String name = result.getFile() != null ? result.getFile().getName() : "hot folder";
+        if (result.isFailed()) {
+            System.err.println("Hot folder scan of " + name + " failed: " + result.getError());
+            updateStatus("Could not scan " + name + ": " + result.getError());
+        } else if (!result.getResults().isEmpty()) {
+            // An unchanged file was already reported when it was first scanned.
+            if (!result.isCached()) scanRecorder.record(result.getResults(), ScanSource.FILE);
+            updateStatus("Found " + result.getResults().size() + " QR code(s) in " + name);
+        }
+    }
+
+    /** The file scan cache, loaded on first use and resized to the current setting; {@code null} while turned off. */
+    private synchronized DecodeCache decodeCache() {
+        if (!settingsManager.isDecodeCacheEnabled()) return null;
+        long maxBytes = settingsManager.getDecodeCacheSizeMb() * 1024L * 1024L;
+        if (decodeCache == null) {
+            decodeCache = DecodeCache.open(DecodeCache.defaultPath(), FileScanner.cacheContext(), maxBytes);
+        } else {
+            decodeCache.setMaxBytes(maxBytes);
         }
-        return null;
+        return decodeCache;
     }
     
     private void setupEventHandlers() {
@@ -341,13 +418,43 @@ public class QRScannerApp extends JFrame {
     
     public void updateStatus(String message) { SwingUtilities.invokeLater(() -> statusLabel.setText(message)); }
     
-    public void onQRCodeDetected(String qrContent) {
+    /**
+     * Entry point for every decoded batch of payloads. Repeats of the same content from the
+     * same source within the duplicate window are dropped here, and the rest go to history
+     * together. A single code is processed as usual; several are listed in one dialog.
+     * @return {@code true} if at least one payload was accepted for processing.
+     */
+    public boolean onQRCodesDetected(List<DecodeResult> results, ScanSource source) {
+        List<DecodeResult> fresh = scanRecorder.suppressDuplicates(results, source);
+        if (fresh.isEmpty()) {
+            if (source != ScanSource.CAMERA) updateStatus("These QR codes were already scanned a moment ago.");
+            return false;
+        }
+        long dispatched = System.nanoTime();
         SwingUtilities.invokeLater(() -> {
-            updateStatus("QR Code detected! Processing...");
-            String qrType = qrProcessor.determineQRType(qrContent).name();
-            historyManager.addHistoryItem(qrContent, qrType);
-            qrProcessor.processQRCode(qrContent);
+            MetricsRegistry.getDefault().record(MetricsRegistry.Stage.UI_DISPATCH, System.nanoTime() - dispatched);
+            scanRecorder.addToHistory(fresh);
+            if (fresh.size() == 1) {
+                updateStatus("QR Code detected! Processing...");
+                qrProcessor.processQRCode(fresh.get(0).getText());
+            } else {
+                updateStatus(fresh.size() + " QR codes detected.");
+                StringBuilder summary = new StringBuilder("Found " + fresh.size() + " QR codes:\n\n");
+                for (DecodeResult result : fresh) {
+                    summary.append(qrProcessor.determineQRType(result.getText())).append(": ").append(result).append("\n\n");
+                }
+                showResultsDialog(summary.toString(), "QR Codes Detected");
+            }
         });
+        return true;
+    }
+
+    private void showResultsDialog(String text, String title) {
+        JTextArea textArea = new JTextArea(text);
+        textArea.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(500, 300));
+        JOptionPane.showMessageDialog(this, scrollPane, title, JOptionPane.INFORMATION_MESSAGE);
     }
     
     private void minimizeToTray() {
@@ -374,11 +481,24 @@ public class QRScannerApp extends JFrame {
             hotkeyManager.cleanup();
             cameraPanel.cleanup();
             trayManager.cleanup();
+            if (hotFolderWatcher != null) hotFolderWatcher.stop();
+            if (screenWatcher != null) screenWatcher.stop();
+            saveDecodeCache();
             dispose();
             System.exit(0);
         }
     }
     
+    /** Single-file scans only update the cache in memory; batches save it themselves. */
+    private synchronized void saveDecodeCache() {
+        if (decodeCache == null) return;
+        try {
+            decodeCache.save();
+        } catch (IOException e) {
+            System.err.println("Failed to save decode cache: " + e.getMessage());
+        }
+    }
+
     private void showSettings() {
         SettingsDialog settingsDialog = new SettingsDialog(this, settingsManager);
         settingsDialog.setVisible(true);
@@ -408,7 +528,15 @@ public class QRScannerApp extends JFrame {
         return this.cameraPanel;
     }
 
+    public DuplicateSuppressor getDuplicateSuppressor() {
+        return this.duplicateSuppressor;
+    }
+
     public static void main(String[] args) {
+        if (args.length > 0 && "scan".equals(args[0])) {
+            BatchScanCli.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SettingsManager settings = new SettingsManager();
         try {
             String theme = settings.getTheme();
@@ -435,6 +563,20 @@ public class QRScannerApp extends JFrame {
 
         System.setProperty("awt.useSystemAAFontSettings", "on");
         System.setProperty("swing.aatext", "true");
+        startMetrics();
         SwingUtilities.invokeLater(() -> new QRScannerApp().setVisible(true));
     }
+
+    /**
+     * Publishes the scan metrics over JMX, and with {@code -Dqrscanner.metrics.file=<path>}
+     * also appends a JSON snapshot to that file every {@code qrscanner.metrics.interval} seconds (default 60).
+     */
+    private static void startMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.registerMBean();
+        String snapshotFile = System.getProperty("qrscanner.metrics.file");
+        if (snapshotFile != null && !snapshotFile.isEmpty()) {
+            metrics.startSnapshots(Paths.get(snapshotFile), Long.getLong("qrscanner.metrics.interval", 60));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.qrscanner;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link FrameSource} that replays a recording stored as a directory of image files,
+ * in file name order, at a fixed frame rate.
+ * <p>
+ * Frames are paced by a {@link FramePacer}, so a slow consumer sees frames skipped,
+ * just like with a live camera, instead of the whole replay slowing down.
+ */
+public class ReplayFrameSource implements FrameSource {
+    private static final String[] IMAGE_EXTENSIONS = {".png", ".jpg", ".jpeg", ".bmp", ".gif"};
+
+    private final Path directory;
+    private final boolean loop;
+    private final FramePacer pacer;
+    private List<Path> frames = Collections.emptyList();
+    private boolean finished;
+
+    /**
+     * @param framesPerSecond replay rate; {@code 0} or less replays as fast as frames are grabbed.
+     * @param loop whether to start over after the last frame instead of running dry.
+     */
+    public ReplayFrameSource(Path directory, double framesPerSecond, boolean loop) {
+        this.directory = directory;
+        this.loop = loop;
+        this.pacer = new FramePacer(framesPerSecond);
+    }
+
+    @Override
+    public void open() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            frames = files.filter(ReplayFrameSource::isImage).sorted().collect(Collectors.toList());
+        }
+        if (frames.isEmpty()) throw new IOException("No frames found in " + directory);
+        pacer.restart();
+        finished = false;
+    }
+
+    @Override
+    public boolean grabInto(ScanFrame target) throws IOException, InterruptedException {
+        if (frames.isEmpty() || finished) return false;
+        long index = pacer.awaitNextFrame();
+        if (!loop && index >= frames.size()) {
+            finished = true;
+            return false;
+        }
+        Path file = frames.get((int) (index % frames.size()));
+        BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) throw new IOException("Unsupported image format: " + file.getFileName());
+        target.loadImage(image);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        frames = Collections.emptyList();
+    }
+
+    @Override
+    public String getName() {
+        return "Replay of " + directory.getFileName();
+    }
+
+    /** Whether a non-looping replay has delivered its last frame. */
+    public boolean isFinished() { return finished; }
+    public int getFrameCount() { return frames.size(); }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (!Files.isRegularFile(path)) return false;
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (name.endsWith(extension)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,103 @@
+package com.qrscanner;
+
+import com.google.zxing.ResultPoint;
+
+import java.awt.Rectangle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers where the last QR code was seen in a stream of frames, so the next
+ * frames can be decoded on a padded crop around that spot first.
+ * <p>
+ * The region decays: every miss widens the search margin, and the region is
+ * forgotten entirely after too many consecutive misses or once the last hit is
+ * older than the time-to-live. Every few frames the crop is skipped so that new
+ * codes entering the view are still picked up. Instances are thread-safe.
+ */
+public class RoiTracker {
+    private static final long DEFAULT_TTL_MILLIS = 1500;
+    private static final int MAX_MISSES = 4;
+    /** Margin added on every side, as a fraction of the code's size. */
+    private static final double BASE_PADDING = 0.5;
+    private static final double PADDING_PER_MISS = 0.25;
+    /** Crops smaller than this are not worth decoding separately. */
+    private static final int MIN_REGION_SIZE = 64;
+    /** Every n-th frame skips the crop, so codes appearing elsewhere in view are still found. */
+    private static final int FULL_FRAME_EVERY = 4;
+
+    private final long ttlNanos;
+    private Rectangle codeBounds;
+    private long lastHitNanos;
+    private int misses;
+    private int regionRequests;
+
+    public RoiTracker() {
+        this(DEFAULT_TTL_MILLIS);
+    }
+
+    public RoiTracker(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Returns the region to try first in a {@code width} x {@code height} frame,
+     * or {@code null} if there is no live region or it would cover most of the frame anyway.
+     */
+    public synchronized Rectangle currentRegion(int width, int height) {
+        if (codeBounds == null) return null;
+        if (System.nanoTime() - lastHitNanos > ttlNanos) {
+            reset();
+            return null;
+        }
+        if (++regionRequests % FULL_FRAME_EVERY == 0) return null;
+        double padding = BASE_PADDING + misses * PADDING_PER_MISS;
+        int padX = (int) Math.ceil(codeBounds.width * padding);
+        int padY = (int) Math.ceil(codeBounds.height * padding);
+        Rectangle region = new Rectangle(codeBounds.x - padX, codeBounds.y - padY,
+            codeBounds.width + 2 * padX, codeBounds.height + 2 * padY).intersection(new Rectangle(0, 0, width, height));
+        if (region.width < MIN_REGION_SIZE || region.height < MIN_REGION_SIZE) return null;
+        // A crop covering more than half the frame saves too little to be worth a second pass.
+        if ((long) region.width * region.height * 2 > (long) width * height) return null;
+        return region;
+    }
+
+    /** Records a hit whose result points (of one or several codes) are in frame coordinates. */
+    public synchronized void recordHit(ResultPoint[] points) {
+        Rectangle bounds = boundsOf(points);
+        if (bounds == null) return;
+        codeBounds = bounds;
+        lastHitNanos = System.nanoTime();
+        misses = 0;
+    }
+
+    /** Records a frame in which the code was not found inside the region. */
+    public synchronized void recordMiss() {
+        if (codeBounds != null && ++misses > MAX_MISSES) reset();
+    }
+
+    public synchronized boolean isTracking() {
+        return codeBounds != null;
+    }
+
+    public synchronized void reset() {
+        codeBounds = null;
+        misses = 0;
+    }
+
+    private static Rectangle boundsOf(ResultPoint[] points) {
+        if (points == null) return null;
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        int count = 0;
+        for (ResultPoint point : points) {
+            if (point == null) continue;
+            minX = Math.min(minX, point.getX());
+            minY = Math.min(minY, point.getY());
+            maxX = Math.max(maxX, point.getX());
+            maxY = Math.max(maxY, point.getY());
+            count++;
+        }
+        // Finder pattern centres sit inside the symbol, so three points are needed for a usable box.
+        if (count < 3) return null;
+        return new Rectangle((int) minX, (int) minY, Math.max(1, (int) Math.ceil(maxX - minX)), Math.max(1, (int) Math.ceil(maxY - minY)));
+    }
+}
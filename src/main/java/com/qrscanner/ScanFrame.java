@@ -0,0 +1,120 @@
+package com.qrscanner;
+
+import com.google.zxing.LuminanceSource;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable camera frame travelling through the {@link ScanPipeline}.
+ * <p>
+ * Frames are owned by a {@link FramePool} and refilled in place for every capture.
+ * Pixels are converted to an 8-bit luminance plane as they are loaded, and that
+ * plane is only reallocated when the resolution changes, so steady-state scanning
+ * produces no per-frame garbage on the luminance path.
+ */
+public class ScanFrame {
+    private byte[] luminances = new byte[0];
+    private int[] rowBuffer = new int[0];
+    private int width;
+    private int height;
+    private long sequence;
+    private long captureNanos;
+    private long scene;
+    private PooledLuminanceSource luminanceSource;
+
+    /**
+     * Loads a packed 24-bit RGB buffer, as produced by {@code Webcam.getImageBytes(ByteBuffer)},
+     * converting each pixel to luminance on the way in.
+     */
+    public void loadRgb(ByteBuffer rgb, int width, int height) {
+        long started = System.nanoTime();
+        ensureCapacity(width, height);
+        int pixels = width * height;
+        int base = rgb.position();
+        for (int i = 0, offset = base; i < pixels; i++, offset += 3) {
+            luminances[i] = toLuminance(rgb.get(offset) & 0xFF, rgb.get(offset + 1) & 0xFF, rgb.get(offset + 2) & 0xFF);
+        }
+        recordLuminance(started);
+    }
+
+    /** Loads an image row by row through a reusable ARGB buffer. */
+    public void loadImage(BufferedImage image) {
+        long started = System.nanoTime();
+        int w = image.getWidth();
+        int h = image.getHeight();
+        ensureCapacity(w, h);
+        if (rowBuffer.length < w) rowBuffer = new int[w];
+        for (int y = 0; y < h; y++) {
+            image.getRGB(0, y, w, 1, rowBuffer, 0, w);
+            int offset = y * w;
+            for (int x = 0; x < w; x++) {
+                int pixel = rowBuffer[x];
+                // Fully transparent pixels are treated as white, like BufferedImageLuminanceSource does.
+                luminances[offset + x] = (pixel >>> 24) == 0 ? (byte) 0xFF
+                    : toLuminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+            }
+        }
+        recordLuminance(started);
+    }
+
+    /** Copies a ready-made 8-bit luminance plane of {@code width * height} bytes. */
+    public void loadLuminance(byte[] plane, int width, int height) {
+        long started = System.nanoTime();
+        ensureCapacity(width, height);
+        System.arraycopy(plane, 0, luminances, 0, width * height);
+        recordLuminance(started);
+    }
+
+    void stamp(long sequence, long captureNanos) {
+        this.sequence = sequence;
+        this.captureNanos = captureNanos;
+    }
+
+    void setScene(long scene) {
+        this.scene = scene;
+    }
+
+    /** Scene number assigned by the {@link FrameGate}; frames of an unchanged view share it. */
+    public long getScene() {
+        return scene;
+    }
+
+    /** Luminance view of the current contents; cached until the resolution changes. */
+    public LuminanceSource getLuminanceSource() {
+        if (luminanceSource == null) luminanceSource = new PooledLuminanceSource(luminances, width, height);
+        return luminanceSource;
+    }
+
+    /** Raw luminance plane, {@code width * height} bytes, row-major. */
+    public byte[] getLuminances() { return luminances; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /** Monotonically increasing capture number, used to tell newer frames from older ones. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** {@link System#nanoTime()} at the moment the frame was grabbed. */
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    private void ensureCapacity(int width, int height) {
+        if (width == this.width && height == this.height) return;
+        this.width = width;
+        this.height = height;
+        this.luminances = new byte[width * height];
+        this.luminanceSource = null;
+    }
+
+    private static void recordLuminance(long started) {
+        MetricsRegistry.getDefault().record(MetricsRegistry.Stage.LUMINANCE, System.nanoTime() - started);
+    }
+
+    /** Same integer weights as ZXing's BufferedImageLuminanceSource. */
+    private static byte toLuminance(int r, int g, int b) {
+        return (byte) ((306 * r + 601 * g + 117 * b + 0x200) >> 10);
+    }
+}
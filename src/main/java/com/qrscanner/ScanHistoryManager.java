@@ -26,6 +26,19 @@ public class ScanHistoryManager {
         history.addFirst(new ScanHistoryItem(content, type));
     }
 
+    /** Adds several items at once, e.g. every code found on one page; the first item ends up on top. */
+    public void addHistoryItems(List<ScanHistoryItem> items) {
+        if (!settingsManager.isHistorySavingEnabled() || items.isEmpty()) {
+            return;
+        }
+        for (int i = items.size() - 1; i >= 0; i--) {
+            history.addFirst(items.get(i));
+        }
+        while (history.size() > MAX_HISTORY_SIZE) {
+            history.removeLast();
+        }
+    }
+
     public List<ScanHistoryItem> getHistory() {
         return history;
     }
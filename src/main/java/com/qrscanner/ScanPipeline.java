@@ -0,0 +1,276 @@
+package com.qrscanner;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Multi-stage scanning pipeline used by {@link CameraPanel}.
+ * <p>
+ * A single capture thread grabs frames from a {@link FrameSource} at the configured interval and pushes them
+ * into a drop-oldest {@link FrameRingBuffer}. A pool of decoder workers blocks on
+ * that buffer and hands every frame's decoded codes to the listener. Capture never waits
+ * on a slow decode, and no thread spins while the buffer is empty. Repeats of the
+ * same code are left to the listener, typically via a {@link DuplicateSuppressor}.
+ * A shared {@link RoiTracker} lets workers decode around the last hit first, and every
+ * frame is decoded under a {@link DecodeDeadline} so one hard frame cannot stall a worker.
+ * A {@link FrameGate} on the capture side keeps static and blurry frames out of the buffer.
+ */
+public class ScanPipeline {
+    private static final int DEFAULT_BUFFER_CAPACITY = 4;
+    private static final long DEFAULT_FRAME_BUDGET_MILLIS = 250;
+
+    private final QRProcessor qrProcessor;
+    private final FrameSource source;
+    private final Consumer<List<DecodeResult>> listener;
+    private final FrameRingBuffer frameBuffer;
+    private final RoiTracker roiTracker = new RoiTracker();
+    private final FrameGate frameGate = new FrameGate();
+    private final MetricsRegistry metrics = MetricsRegistry.getDefault();
+    private final Map<Long, DecodeDeadline> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong framesCaptured = new AtomicLong();
+    private final AtomicLong framesDecoded = new AtomicLong();
+    private final AtomicLong framesStarved = new AtomicLong();
+
+    private volatile DecodeObserver observer;
+    private volatile boolean running = false;
+    private volatile long captureIntervalMillis = 333;
+    private volatile long frameBudgetMillis = DEFAULT_FRAME_BUDGET_MILLIS;
+    private Thread captureThread;
+    private ExecutorService decoderPool;
+    private FramePool framePool;
+
+    /** Per-frame timing callback, invoked on the decoder worker after the listener has run. */
+    @FunctionalInterface
+    public interface DecodeObserver {
+        /**
+         * @param captureNanos {@link System#nanoTime()} when the frame was grabbed.
+         * @param delivered number of results handed to the listener; {@code 0} for a miss.
+         * @param decodeNanos wall-clock time spent decoding the frame.
+         * @param cpuNanos CPU time the worker spent on it, or {@code 0} if the JVM cannot measure it.
+         */
+        void frameDecoded(long sequence, long captureNanos, int delivered, long decodeNanos, long cpuNanos);
+    }
+
+    public ScanPipeline(QRProcessor qrProcessor, FrameSource source, Consumer<List<DecodeResult>> listener) {
+        this(qrProcessor, source, listener, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    public ScanPipeline(QRProcessor qrProcessor, FrameSource source, Consumer<List<DecodeResult>> listener, int bufferCapacity) {
+        this.qrProcessor = qrProcessor;
+        this.source = source;
+        this.listener = listener;
+        this.frameBuffer = new FrameRingBuffer(bufferCapacity);
+    }
+
+    /**
+     * Starts the capture thread and {@code decoderThreads} decoder workers.
+     * Calling this on a running pipeline has no effect.
+     */
+    public synchronized void start(int decoderThreads) {
+        if (running) return;
+        running = true;
+        frameBuffer.clear();
+        roiTracker.reset();
+        frameGate.reset();
+        int workers = Math.max(1, decoderThreads);
+        // Enough frames for a full ring, one per busy worker and the one being captured.
+        framePool = new FramePool(frameBuffer.capacity() + workers + 1);
+        decoderPool = Executors.newFixedThreadPool(workers, namedThreadFactory("qr-decoder"));
+        for (int i = 0; i < workers; i++) {
+            decoderPool.execute(this::decodeLoop);
+        }
+        captureThread = namedThreadFactory("qr-capture").newThread(this::captureLoop);
+        captureThread.start();
+    }
+
+    /**
+     * Stops capturing and interrupts the decoder workers. Queued frames are discarded
+     * and in-flight decodes are cancelled, so workers exit after their current tier.
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        inFlight.values().forEach(DecodeDeadline::cancel);
+        if (captureThread != null) captureThread.interrupt();
+        if (decoderPool != null) decoderPool.shutdownNow();
+        frameBuffer.clear();
+    }
+
+    /**
+     * Waits for the capture thread and decoder workers of the last run to exit.
+     * @return {@code true} if all workers terminated within the timeout.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        ExecutorService pool;
+        Thread capture;
+        synchronized (this) {
+            pool = decoderPool;
+            capture = captureThread;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (capture != null) TimeUnit.NANOSECONDS.timedJoin(capture, Math.max(1, unit.toNanos(timeout)));
+        if (capture != null && capture.isAlive()) return false;
+        return pool == null || pool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    public void setCaptureInterval(long millis) {
+        this.captureIntervalMillis = Math.max(0, millis);
+    }
+
+    /** Maximum time a decoder worker may spend on one frame before moving on. */
+    public void setFrameBudget(long millis) {
+        this.frameBudgetMillis = Math.max(1, millis);
+    }
+
+    /** Installs a timing callback, e.g. for soak tests; {@code null} removes it. */
+    public void setDecodeObserver(DecodeObserver observer) {
+        this.observer = observer;
+    }
+
+    /** Motion and sharpness gate in front of the decoders; exposes its thresholds and skip counters. */
+    public FrameGate getFrameGate() { return frameGate; }
+
+    public FrameSource getSource() { return source; }
+    public boolean isRunning() { return running; }
+    public long getFramesCaptured() { return framesCaptured.get(); }
+    public long getFramesDecoded() { return framesDecoded.get(); }
+    public long getFramesDropped() { return frameBuffer.getDroppedFrames() + framesStarved.get(); }
+    /** Frames waiting in the ring buffer for a decoder worker. */
+    public int getQueuedFrames() { return frameBuffer.size(); }
+
+    private void captureLoop() {
+        while (running) {
+            long started = System.nanoTime();
+            try {
+                ScanFrame frame = framePool.acquire();
+                if (frame == null) {
+                    framesStarved.incrementAndGet();
+                    metrics.increment(MetricsRegistry.Counter.FRAMES_DROPPED);
+                } else {
+                    capture(frame, started);
+                }
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                long sleepMillis = captureIntervalMillis - elapsedMillis;
+                if (sleepMillis > 0) Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Frame capture failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Grabs into {@code frame} and queues it if the gate lets it through; otherwise returns it to the pool. */
+    private void capture(ScanFrame frame, long started) throws IOException, InterruptedException {
+        boolean queued = false;
+        try {
+            boolean grabbed = source.grabInto(frame);
+            metrics.record(MetricsRegistry.Stage.CAPTURE, System.nanoTime() - started);
+            if (grabbed) {
+                framesCaptured.incrementAndGet();
+                metrics.increment(MetricsRegistry.Counter.FRAMES_GRABBED);
+                frame.stamp(sequence.incrementAndGet(), started);
+                if (frameGate.evaluate(frame) == FrameGate.Verdict.DECODE) {
+                    ScanFrame evicted = frameBuffer.offer(frame);
+                    queued = true;
+                    if (evicted != null) {
+                        metrics.increment(MetricsRegistry.Counter.FRAMES_DROPPED);
+                        framePool.release(evicted);
+                    }
+                } else {
+                    metrics.increment(MetricsRegistry.Counter.FRAMES_SKIPPED);
+                }
+            }
+        } finally {
+            if (!queued) framePool.release(frame);
+        }
+    }
+
+    private void decodeLoop() {
+        while (running) {
+            ScanFrame frame;
+            try {
+                frame = frameBuffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long frameSequence = frame.getSequence();
+            long captureNanos = frame.getCaptureNanos();
+            DecodeObserver currentObserver = observer;
+            long cpuStart = currentObserver != null ? threadCpuNanos() : 0;
+            long decodeStart = System.nanoTime();
+            FrameEvent event = new FrameEvent();
+            event.begin();
+            event.sequence = frameSequence;
+            event.width = frame.getWidth();
+            event.height = frame.getHeight();
+            DecodeDeadline deadline = DecodeDeadline.after(frameBudgetMillis);
+            inFlight.put(frameSequence, deadline);
+            List<DecodeResult> results;
+            try {
+                results = qrProcessor.decodeFrame(frame.getLuminanceSource(), roiTracker, deadline);
+                frameGate.recordResult(frame, !results.isEmpty());
+            } finally {
+                inFlight.remove(frameSequence);
+                framePool.release(frame);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = source.getName();
+                event.queueTime = decodeStart - captureNanos;
+                event.success = !results.isEmpty();
+                event.codes = results.size();
+                event.expired = deadline.isExpired();
+                event.commit();
+            }
+            framesDecoded.incrementAndGet();
+            metrics.increment(MetricsRegistry.Counter.FRAMES_DECODED);
+            if (!results.isEmpty()) metrics.increment(MetricsRegistry.Counter.FRAMES_HIT);
+            long decodeNanos = System.nanoTime() - decodeStart;
+            long cpuNanos = currentObserver != null ? threadCpuNanos() - cpuStart : 0;
+            boolean delivered = !results.isEmpty() && running;
+            if (delivered) {
+                cancelOlderThan(frameSequence);
+                listener.accept(results);
+            }
+            if (currentObserver != null) {
+                currentObserver.frameDecoded(frameSequence, captureNanos, delivered ? results.size() : 0, decodeNanos, cpuNanos);
+            }
+        }
+    }
+
+    /** A hit on a newer frame supersedes older frames still being decoded; their results would be stale. */
+    private void cancelOlderThan(long sequence) {
+        inFlight.forEach((otherSequence, deadline) -> {
+            if (otherSequence < sequence) deadline.cancel();
+        });
+    }
+
+    private static long threadCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
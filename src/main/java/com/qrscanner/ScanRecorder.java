@@ -0,0 +1,52 @@
+package com.qrscanner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bookkeeping every decoded batch goes through before it is shown: repeats within the
+ * duplicate window are dropped, and what is left is added to the scan history.
+ * <p>
+ * Kept free of Swing so {@link QRScannerApp} and {@link ScanSoakHarness} share one code path.
+ * May be called from any thread.
+ */
+public class ScanRecorder {
+    private final QRProcessor qrProcessor;
+    private final DuplicateSuppressor duplicateSuppressor;
+    private final ScanHistoryManager historyManager;
+
+    public ScanRecorder(QRProcessor qrProcessor, DuplicateSuppressor duplicateSuppressor, ScanHistoryManager historyManager) {
+        this.qrProcessor = qrProcessor;
+        this.duplicateSuppressor = duplicateSuppressor;
+        this.historyManager = historyManager;
+    }
+
+    /** Suppresses duplicates and adds the rest to history. @return the distinct payloads that were new. */
+    public List<DecodeResult> record(List<DecodeResult> results, ScanSource source) {
+        List<DecodeResult> fresh = suppressDuplicates(results, source);
+        addToHistory(fresh);
+        return fresh;
+    }
+
+    /** @return the distinct payloads that were not seen from {@code source} within the duplicate window. */
+    public List<DecodeResult> suppressDuplicates(List<DecodeResult> results, ScanSource source) {
+        List<DecodeResult> fresh = new ArrayList<>();
+        for (DecodeResult result : DecodeResult.distinctByText(results)) {
+            if (duplicateSuppressor.shouldReport(result.getText(), source)) fresh.add(result);
+        }
+        return fresh;
+    }
+
+    public void addToHistory(List<DecodeResult> results) {
+        if (results.isEmpty()) return;
+        List<ScanHistoryManager.ScanHistoryItem> items = new ArrayList<>(results.size());
+        for (DecodeResult result : results) {
+            String qrType = qrProcessor.determineQRType(result.getText()).name();
+            items.add(new ScanHistoryManager.ScanHistoryItem(result.getText(), qrType));
+        }
+        // Camera decoder threads, the batch scanner and the hot folder can all deliver at once.
+        synchronized (historyManager) {
+            historyManager.addHistoryItems(items);
+        }
+    }
+}
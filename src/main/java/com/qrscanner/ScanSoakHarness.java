@@ -0,0 +1,243 @@
+package com.qrscanner;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless soak and load test of the live scanning path.
+ * <p>
+ * Frames from a {@link SyntheticFrameSource} (or a {@link ReplayFrameSource} with
+ * {@code --replay=<dir>}) run through the same {@link ScanPipeline} the camera tab
+ * uses, and every delivered batch goes through the same {@link ScanRecorder} as
+ * {@link QRScannerApp#onQRCodesDetected} for duplicate suppression and history
+ * bookkeeping; only the Swing dialogs are left out. Every report interval one JSON line with
+ * {@code "type":"interval"} is written to standard output, and a
+ * {@code "type":"summary"} line at the end, so runs can be compared over time.
+ * <p>
+ * Usage: {@code java -cp qr-wifi-scanner.jar com.qrscanner.ScanSoakHarness [--duration=600] [--fps=30]
+ * [--resolution=640x480] [--threads=2] [--report=10] [--seed=1] [--noise=4] [--blur=1]
+ * [--perspective=0.15] [--scene-frames=30] [--budget=250] [--replay=dir]}
+ */
+public class ScanSoakHarness {
+    private final Map<String, String> options;
+    private final QRProcessor qrProcessor = new QRProcessor(null);
+    private final SettingsManager settings = new SettingsManager();
+    private final ScanHistoryManager historyManager = new ScanHistoryManager(settings);
+    private final DuplicateSuppressor duplicateSuppressor = new DuplicateSuppressor(settings.getDuplicateWindow());
+    private final ScanRecorder scanRecorder = new ScanRecorder(qrProcessor, duplicateSuppressor, historyManager);
+    private final LatencyHistogram detectionLatency = new LatencyHistogram();
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
+    private final LatencyHistogram decodeTime = new LatencyHistogram();
+    private final AtomicLong decodeCpuNanos = new AtomicLong();
+    private final AtomicLong detections = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong incorrect = new AtomicLong();
+    private final AtomicLong gcPauses = new AtomicLong();
+    private final AtomicLong gcPauseMillis = new AtomicLong();
+    private final AtomicLong gcMaxPauseMillis = new AtomicLong();
+    private final AtomicLong intervalGcMaxPauseMillis = new AtomicLong();
+    private Set<String> expectedPayloads;
+
+    public ScanSoakHarness(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("java.awt.headless") == null) System.setProperty("java.awt.headless", "true");
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.err.println("Unrecognised argument: " + arg);
+                System.exit(2);
+            }
+            String[] keyValue = arg.substring(2).split("=", 2);
+            options.put(keyValue[0], keyValue.length == 2 ? keyValue[1] : "true");
+        }
+        new ScanSoakHarness(options).run();
+    }
+
+    public void run() throws IOException, InterruptedException {
+        long durationMillis = TimeUnit.SECONDS.toMillis(longOption("duration", 600));
+        long reportMillis = TimeUnit.SECONDS.toMillis(Math.max(1, longOption("report", 10)));
+        FrameSource source = createSource();
+        ScanPipeline pipeline = new ScanPipeline(qrProcessor, source, this::deliver);
+        // The sources pace themselves, so the capture thread grabs as soon as a frame is due.
+        pipeline.setCaptureInterval(0);
+        pipeline.setFrameBudget(longOption("budget", 250));
+        pipeline.setDecodeObserver(this::frameDecoded);
+        installGcListener();
+        MetricsRegistry.getDefault().registerMBean();
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baselineHeap = memory.getHeapMemoryUsage().getUsed();
+        long startNanos = System.nanoTime();
+        long startCpu = processCpuNanos();
+        source.open();
+        pipeline.start((int) longOption("threads", SettingsManager.defaultDecoderThreads()));
+        System.out.println(new JsonLine()
+            .put("type", "start")
+            .put("source", source.getName())
+            .put("duration_s", TimeUnit.MILLISECONDS.toSeconds(durationMillis))
+            .put("decoder_threads", longOption("threads", SettingsManager.defaultDecoderThreads()))
+            .put("processors", Runtime.getRuntime().availableProcessors())
+            .put("java_version", System.getProperty("java.version")));
+
+        long lastCaptured = 0;
+        long lastDecoded = 0;
+        long lastDropped = 0;
+        long deadline = System.currentTimeMillis() + durationMillis;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(Math.min(reportMillis, Math.max(1, deadline - System.currentTimeMillis())));
+                long captured = pipeline.getFramesCaptured();
+                long decoded = pipeline.getFramesDecoded();
+                long dropped = pipeline.getFramesDropped();
+                System.out.println(new JsonLine()
+                    .put("type", "interval")
+                    .put("elapsed_s", (System.nanoTime() - startNanos) / 1e9)
+                    .put("frames_captured", captured - lastCaptured)
+                    .put("frames_decoded", decoded - lastDecoded)
+                    .put("frames_dropped", dropped - lastDropped)
+                    .put("frames_queued", pipeline.getQueuedFrames())
+                    .put("detections", intervalLatency.getCount())
+                    .put("latency_p50_ms", intervalLatency.getPercentileMillis(50))
+                    .put("latency_p99_ms", intervalLatency.getPercentileMillis(99))
+                    .put("heap_used_mb", toMegabytes(memory.getHeapMemoryUsage().getUsed()))
+                    .put("gc_max_pause_ms", intervalGcMaxPauseMillis.getAndSet(0)));
+                intervalLatency.reset();
+                lastCaptured = captured;
+                lastDecoded = decoded;
+                lastDropped = dropped;
+            }
+        } finally {
+            pipeline.stop();
+            pipeline.awaitTermination(5, TimeUnit.SECONDS);
+            source.close();
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        long decoded = pipeline.getFramesDecoded();
+        long processCpu = processCpuNanos() - startCpu;
+        // Heap growth is only meaningful after a full collection has removed short-lived garbage.
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+        FrameGate gate = pipeline.getFrameGate();
+        System.out.println(new JsonLine()
+            .put("type", "summary")
+            .put("elapsed_s", elapsedSeconds)
+            .put("frames_captured", pipeline.getFramesCaptured())
+            .put("frames_decoded", decoded)
+            .put("frames_dropped", pipeline.getFramesDropped())
+            .put("frames_skipped_static", gate.getSkippedStatic())
+            .put("frames_skipped_blurry", gate.getSkippedBlurry())
+            .put("capture_fps", pipeline.getFramesCaptured() / elapsedSeconds)
+            .put("detections", detections.get())
+            .put("accepted", accepted.get())
+            .put("suppressed", duplicateSuppressor.getSuppressedCount())
+            .put("incorrect", expectedPayloads == null ? -1 : incorrect.get())
+            .put("latency_p50_ms", detectionLatency.getPercentileMillis(50))
+            .put("latency_p90_ms", detectionLatency.getPercentileMillis(90))
+            .put("latency_p99_ms", detectionLatency.getPercentileMillis(99))
+            .put("latency_max_ms", detectionLatency.getMaxNanos() / 1e6)
+            .put("decode_p50_ms", decodeTime.getPercentileMillis(50))
+            .put("decode_p99_ms", decodeTime.getPercentileMillis(99))
+            .put("decode_cpu_ms_per_frame", decoded == 0 ? 0 : decodeCpuNanos.get() / 1e6 / decoded)
+            .put("process_cpu_ms_per_frame", pipeline.getFramesCaptured() == 0 ? 0 : processCpu / 1e6 / pipeline.getFramesCaptured())
+            .put("heap_baseline_mb", toMegabytes(baselineHeap))
+            .put("heap_after_gc_mb", toMegabytes(heapAfter))
+            .put("heap_growth_mb", toMegabytes(heapAfter - baselineHeap))
+            .put("history_size", historyManager.getHistory().size())
+            .put("gc_pauses", gcPauses.get())
+            .put("gc_pause_total_ms", gcPauseMillis.get())
+            .put("gc_max_pause_ms", gcMaxPauseMillis.get()));
+        System.out.println(MetricsRegistry.getDefault().appendTo(new JsonLine().put("type", "metrics")));
+    }
+
+    private FrameSource createSource() {
+        String resolution = options.getOrDefault("resolution", "640x480");
+        double fps = Double.parseDouble(options.getOrDefault("fps", "30"));
+        if (options.containsKey("replay")) {
+            return new ReplayFrameSource(Paths.get(options.get("replay")), fps, true);
+        }
+        int separator = resolution.indexOf('x');
+        SyntheticFrameSource source = new SyntheticFrameSource(qrProcessor,
+            Integer.parseInt(resolution.substring(0, separator)), Integer.parseInt(resolution.substring(separator + 1)),
+            fps, longOption("seed", 1));
+        source.setNoise(Double.parseDouble(options.getOrDefault("noise", "4")));
+        source.setBlurRadius((int) longOption("blur", 1));
+        source.setPerspective(Double.parseDouble(options.getOrDefault("perspective", "0.15")));
+        source.setFramesPerScene((int) longOption("scene-frames", 30));
+        expectedPayloads = new HashSet<>(source.getPayloads());
+        return source;
+    }
+
+    /** Records the batch as {@link QRScannerApp#onQRCodesDetected} does, without the Swing dialogs. */
+    private void deliver(List<DecodeResult> results) {
+        for (DecodeResult result : DecodeResult.distinctByText(results)) {
+            detections.incrementAndGet();
+            if (expectedPayloads != null && !expectedPayloads.contains(result.getText())) incorrect.incrementAndGet();
+        }
+        accepted.addAndGet(scanRecorder.record(results, ScanSource.CAMERA).size());
+    }
+
+    private void frameDecoded(long sequence, long captureNanos, int delivered, long decodeNanos, long cpuNanos) {
+        decodeTime.record(decodeNanos);
+        decodeCpuNanos.addAndGet(cpuNanos);
+        if (delivered > 0) {
+            long latency = System.nanoTime() - captureNanos;
+            detectionLatency.record(latency);
+            intervalLatency.record(latency);
+        }
+    }
+
+    private void installGcListener() {
+        NotificationListener listener = (Notification notification, Object handback) -> {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            // Concurrent collector cycles run alongside the application and are not pauses.
+            if (info.getGcName().contains("Concurrent") || info.getGcName().contains("Cycles")) return;
+            long pause = info.getGcInfo().getDuration();
+            gcPauses.incrementAndGet();
+            gcPauseMillis.addAndGet(pause);
+            gcMaxPauseMillis.accumulateAndGet(pause, Math::max);
+            intervalGcMaxPauseMillis.accumulateAndGet(pause, Math::max);
+        };
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+            }
+        }
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        return os instanceof com.sun.management.OperatingSystemMXBean
+            ? ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime() : 0;
+    }
+
+    private long longOption(String name, long defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    private static double toMegabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
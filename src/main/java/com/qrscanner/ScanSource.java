@@ -0,0 +1,6 @@
+package com.qrscanner;
+
+/**
+ * Where a decoded QR payload came from.
+ */
+public enum ScanSource { CAMERA, SCREEN, FILE }
@@ -0,0 +1,185 @@
+package com.qrscanner;
+
+import java.awt.AWTException;
+import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+import java.awt.image.MultiResolutionImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Captures and decodes every attached display, not just the primary one.
+ * <p>
+ * Each {@link GraphicsDevice} is captured over its own bounds in the virtual desktop, on
+ * its own thread, and decoded there as soon as its capture is in, so one display's decode
+ * overlaps the others' captures. Captures are taken at the display's native resolution:
+ * on a scaled HiDPI display {@link Robot#createScreenCapture} would hand back an image
+ * shrunk to user-space size, which can blur small codes past decoding, so the largest
+ * variant of {@link Robot#createMultiResolutionScreenCapture} is used instead.
+ */
+public class ScreenScanner {
+    /** Whether a scan returns as soon as one display has a code, or waits for them all. */
+    public enum Mode { FIRST_HIT, ALL }
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService POOL = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "qr-screen-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final QRProcessor qrProcessor;
+    private final Map<GraphicsDevice, Robot> robots = new ConcurrentHashMap<>();
+
+    /** One display's capture, at device resolution. */
+    public static class Capture {
+        private final String display;
+        private final Rectangle bounds;
+        private final BufferedImage image;
+
+        Capture(String display, Rectangle bounds, BufferedImage image) {
+            this.display = display;
+            this.bounds = bounds;
+            this.image = image;
+        }
+
+        /** The display's platform ID, stable while it stays attached. */
+        public String getDisplay() { return display; }
+        /** Where the display sits in the virtual desktop, in user-space coordinates. */
+        public Rectangle getBounds() { return bounds; }
+        public BufferedImage getImage() { return image; }
+        /** Device pixels per user-space unit: 1.0 unless the display is scaled. */
+        public double getScale() { return image.getWidth() / (double) bounds.width; }
+    }
+
+    public ScreenScanner(QRProcessor qrProcessor) {
+        this.qrProcessor = qrProcessor;
+    }
+
+    /** @throws AWTException if there is no screen to capture, e.g. on a headless system. */
+    public static List<GraphicsDevice> displays() throws AWTException {
+        if (GraphicsEnvironment.isHeadless()) throw new AWTException("No display is available");
+        List<GraphicsDevice> displays = new ArrayList<>();
+        for (GraphicsDevice device : GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices()) {
+            if (device.getType() == GraphicsDevice.TYPE_RASTER_SCREEN) displays.add(device);
+        }
+        return displays;
+    }
+
+    /**
+     * Captures every display at once.
+     * @return one capture per display that could be captured, in display order.
+     * @throws AWTException if no display could be captured.
+     */
+    public List<Capture> captureAll() throws AWTException, InterruptedException {
+        List<Callable<Capture>> tasks = new ArrayList<>();
+        for (GraphicsDevice device : displays()) tasks.add(() -> capture(device));
+        List<Capture> captures = new ArrayList<>();
+        AWTException failure = null;
+        for (Future<Capture> future : POOL.invokeAll(tasks)) {
+            try {
+                captures.add(future.get());
+            } catch (ExecutionException e) {
+                failure = asAwtException(e.getCause());
+            }
+        }
+        if (captures.isEmpty() && failure != null) throw failure;
+        return captures;
+    }
+
+    /**
+     * Captures and decodes every display concurrently.
+     * @param mode {@link Mode#FIRST_HIT} returns the codes of the first display to yield any
+     *             and cuts the other decodes short; {@link Mode#ALL} waits for every display.
+     * @return distinct codes, in the coordinates of the capture of the display they were found on.
+     * @throws AWTException if no display could be captured.
+     */
+    public List<DecodeResult> scan(Mode mode, DecodeDeadline deadline) throws AWTException, InterruptedException {
+        List<GraphicsDevice> displays = displays();
+        // A deadline of our own, so an early hit can cancel the other displays but not the caller's.
+        long remainingNanos = deadline.remainingNanos();
+        DecodeDeadline shared = remainingNanos == Long.MAX_VALUE
+            ? DecodeDeadline.unbounded()
+            : DecodeDeadline.after(TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+        CompletionService<List<DecodeResult>> completion = new ExecutorCompletionService<>(POOL);
+        List<Future<List<DecodeResult>>> futures = new ArrayList<>();
+        for (GraphicsDevice device : displays) {
+            futures.add(completion.submit(() -> {
+                Capture capture = capture(device);
+                // An early hit on another display cancels only the shared deadline.
+                return shared.isCancelled() ? List.of() : qrProcessor.decodeAll(capture.getImage(), shared);
+            }));
+        }
+        List<DecodeResult> results = new ArrayList<>();
+        AWTException failure = null;
+        int failed = 0;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.addAll(completion.take().get());
+                } catch (ExecutionException e) {
+                    failed++;
+                    failure = asAwtException(e.getCause());
+                    System.err.println("Screen capture failed: " + e.getCause().getMessage());
+                }
+                if (mode == Mode.FIRST_HIT && !results.isEmpty()) break;
+                if (deadline.isCancelled()) break;
+            }
+        } finally {
+            shared.cancel();
+        }
+        if (failed == displays.size() && failure != null) throw failure;
+        return DecodeResult.distinctByText(results);
+    }
+
+    private Capture capture(GraphicsDevice device) throws AWTException {
+        Rectangle bounds = device.getDefaultConfiguration().getBounds();
+        MultiResolutionImage shot = robotFor(device).createMultiResolutionScreenCapture(bounds);
+        Image largest = null;
+        for (Image variant : shot.getResolutionVariants()) {
+            if (largest == null || variant.getWidth(null) > largest.getWidth(null)) largest = variant;
+        }
+        return new Capture(device.getIDstring(), bounds, toBufferedImage(largest));
+    }
+
+    private Robot robotFor(GraphicsDevice device) throws AWTException {
+        Robot robot = robots.get(device);
+        if (robot == null) {
+            robot = new Robot(device);
+            robots.put(device, robot);
+        }
+        return robot;
+    }
+
+    private static BufferedImage toBufferedImage(Image image) {
+        if (image instanceof BufferedImage) return (BufferedImage) image;
+        BufferedImage copy = new BufferedImage(image.getWidth(null), image.getHeight(null), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    private static AWTException asAwtException(Throwable cause) {
+        if (cause instanceof AWTException) return (AWTException) cause;
+        AWTException exception = new AWTException(String.valueOf(cause.getMessage()));
+        exception.initCause(cause);
+        return exception;
+    }
+}
@@ -0,0 +1,237 @@
+package com.qrscanner;
+
+import java.awt.AWTException;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Captures every display at a low rate and decodes only what changed since the last pass.
+ * <p>
+ * Each capture is cut into fixed {@link #TILE_SIZE} tiles and every tile is hashed. Tiles
+ * whose hash changed are grouped into connected regions, which are padded by a tile so a
+ * code straddling the edge of a change is still whole, and only those regions are decoded.
+ * A region is decoded once more on the pass after it stops changing, which catches codes
+ * that were caught mid-transition or mid-scroll. On a static desktop a pass is one capture
+ * and one hash of each display, and no decode at all.
+ */
+public class ScreenWatcher {
+    private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    private static final int TILE_SIZE = 128;
+    /** Past this share of changed tiles the whole screen is decoded as one region. */
+    private static final double FULL_SCREEN_FRACTION = 0.5;
+    private static final long PASS_BUDGET_MILLIS = 3000;
+
+    private final QRProcessor qrProcessor;
+    private final ScreenScanner screenScanner;
+    private final Consumer<List<DecodeResult>> listener;
+    private final AtomicLong passes = new AtomicLong();
+    private final AtomicLong regionsDecoded = new AtomicLong();
+    private final AtomicLong tilesChanged = new AtomicLong();
+
+    private volatile long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private ScheduledExecutorService executor;
+    /** The running pass's budget, so {@link #stop()} can cut it short. */
+    private volatile DecodeDeadline deadline = DecodeDeadline.unbounded();
+    /** Tile hashes per display, by display ID. */
+    private final Map<String, TileState> displays = new ConcurrentHashMap<>();
+
+    /** @param listener receives the codes found in each pass that found any, on the watcher thread. */
+    public ScreenWatcher(QRProcessor qrProcessor, Consumer<List<DecodeResult>> listener) {
+        this.qrProcessor = qrProcessor;
+        this.screenScanner = new ScreenScanner(qrProcessor);
+        this.listener = listener;
+    }
+
+    /** Time between the end of one pass and the start of the next; applies from the next {@link #start}. */
+    public void setIntervalMillis(long millis) {
+        this.intervalMillis = Math.max(100, millis);
+    }
+
+    /**
+     * Starts watching. The first pass decodes every display whole.
+     * @throws AWTException if the screen cannot be captured, e.g. on a headless system.
+     */
+    public synchronized void start() throws AWTException {
+        if (executor != null) return;
+        ScreenScanner.displays(); // Fails here rather than on every pass when there is no screen.
+        displays.clear();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "qr-screen-watch");
+            thread.setDaemon(true);
+            // Keeps capture and hashing from competing with foreground work.
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::pass, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops watching; a decode in progress gives up after its current tier. */
+    public synchronized void stop() {
+        if (executor == null) return;
+        deadline.cancel();
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    public synchronized boolean isRunning() { return executor != null; }
+    public long getPasses() { return passes.get(); }
+    public long getTilesChanged() { return tilesChanged.get(); }
+    public long getRegionsDecoded() { return regionsDecoded.get(); }
+
+    private void pass() {
+        try {
+            List<DecodeResult> results = new ArrayList<>();
+            List<String> attached = new ArrayList<>();
+            for (ScreenScanner.Capture capture : screenScanner.captureAll()) {
+                attached.add(capture.getDisplay());
+                results.addAll(scan(capture.getImage(), capture.getDisplay()));
+            }
+            // Forget displays that were detached, so they start afresh if they return.
+            displays.keySet().retainAll(attached);
+            passes.incrementAndGet();
+            if (!results.isEmpty()) listener.accept(DecodeResult.distinctByText(results));
+        } catch (AWTException | RuntimeException e) {
+            // A failed pass must not cancel the schedule.
+            System.err.println("Screen watch pass failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Hashes the capture's tiles and decodes the regions that changed, or settled, since the display's last pass. */
+    List<DecodeResult> scan(BufferedImage capture, String display) {
+        int[] pixels = pixelsOf(capture);
+        int width = capture.getWidth();
+        int height = capture.getHeight();
+        int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        TileState state = displays.get(display);
+        if (state == null || state.hashes.length != columns * rows) {
+            // New or resized display: everything counts as changed.
+            state = new TileState(columns * rows);
+            displays.put(display, state);
+        }
+        long[] tileHashes = state.hashes;
+        boolean[] changedLastPass = state.changedLastPass;
+        boolean[] changed = new boolean[columns * rows];
+        boolean[] decode = new boolean[columns * rows];
+        int changedCount = 0;
+        int decodeCount = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int tile = row * columns + column;
+                long hash = hashTile(pixels, width, height, column * TILE_SIZE, row * TILE_SIZE);
+                changed[tile] = hash != tileHashes[tile];
+                tileHashes[tile] = hash;
+                decode[tile] = changed[tile] || changedLastPass[tile];
+                if (changed[tile]) changedCount++;
+                if (decode[tile]) decodeCount++;
+            }
+        }
+        state.changedLastPass = changed;
+        tilesChanged.addAndGet(changedCount);
+        if (decodeCount == 0) return new ArrayList<>();
+
+        List<Rectangle> regions = decodeCount > FULL_SCREEN_FRACTION * decode.length
+            ? List.of(new Rectangle(0, 0, width, height))
+            : regions(decode, columns, rows, width, height);
+        DecodeDeadline passDeadline = DecodeDeadline.after(PASS_BUDGET_MILLIS);
+        deadline = passDeadline;
+        List<DecodeResult> results = new ArrayList<>();
+        for (Rectangle region : regions) {
+            if (passDeadline.isExpired()) break;
+            BufferedImage view = capture.getSubimage(region.x, region.y, region.width, region.height);
+            for (DecodeResult result : qrProcessor.decodeAll(view, passDeadline)) {
+                results.add(result.mapped(1, region.x, region.y));
+            }
+            regionsDecoded.incrementAndGet();
+        }
+        return DecodeResult.distinctByText(results);
+    }
+
+    /** Connected groups of marked tiles, as pixel rectangles padded by one tile on every side. */
+    private static List<Rectangle> regions(boolean[] marked, int columns, int rows, int width, int height) {
+        boolean[] seen = new boolean[marked.length];
+        int[] stack = new int[marked.length];
+        List<Rectangle> regions = new ArrayList<>();
+        for (int start = 0; start < marked.length; start++) {
+            if (!marked[start] || seen[start]) continue;
+            int minColumn = columns, minRow = rows, maxColumn = -1, maxRow = -1;
+            int size = 0;
+            stack[size++] = start;
+            seen[start] = true;
+            while (size > 0) {
+                int tile = stack[--size];
+                int column = tile % columns;
+                int row = tile / columns;
+                minColumn = Math.min(minColumn, column);
+                maxColumn = Math.max(maxColumn, column);
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+                int[] neighbours = {
+                    column > 0 ? tile - 1 : -1, column < columns - 1 ? tile + 1 : -1,
+                    row > 0 ? tile - columns : -1, row < rows - 1 ? tile + columns : -1
+                };
+                for (int neighbour : neighbours) {
+                    if (neighbour >= 0 && marked[neighbour] && !seen[neighbour]) {
+                        seen[neighbour] = true;
+                        stack[size++] = neighbour;
+                    }
+                }
+            }
+            int x0 = Math.max(0, (minColumn - 1) * TILE_SIZE);
+            int y0 = Math.max(0, (minRow - 1) * TILE_SIZE);
+            int x1 = Math.min(width, (maxColumn + 2) * TILE_SIZE);
+            int y1 = Math.min(height, (maxRow + 2) * TILE_SIZE);
+            regions.add(new Rectangle(x0, y0, x1 - x0, y1 - y0));
+        }
+        return regions;
+    }
+
+    /** FNV-1a over the tile's pixels; any single changed pixel changes it. */
+    private static long hashTile(int[] pixels, int width, int height, int x0, int y0) {
+        int x1 = Math.min(width, x0 + TILE_SIZE);
+        int y1 = Math.min(height, y0 + TILE_SIZE);
+        long hash = 0xcbf29ce484222325L;
+        for (int y = y0; y < y1; y++) {
+            int offset = y * width;
+            for (int x = x0; x < x1; x++) {
+                hash ^= pixels[offset + x];
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /** The capture's packed RGB pixels, copied only if the platform returned another layout. */
+    private static int[] pixelsOf(BufferedImage capture) {
+        if (capture.getType() == BufferedImage.TYPE_INT_RGB && capture.getRaster().getDataBuffer() instanceof DataBufferInt
+                && capture.getRaster().getParent() == null) {
+            return ((DataBufferInt) capture.getRaster().getDataBuffer()).getData();
+        }
+        return capture.getRGB(0, 0, capture.getWidth(), capture.getHeight(), null, 0, capture.getWidth());
+    }
+
+    /** The last pass's tile hashes of one display, and which tiles had changed in it. */
+    private static class TileState {
+        final long[] hashes;
+        boolean[] changedLastPass;
+
+        TileState(int tiles) {
+            hashes = new long[tiles];
+            changedLastPass = new boolean[tiles];
+            Arrays.fill(hashes, Long.MIN_VALUE);
+        }
+    }
+}
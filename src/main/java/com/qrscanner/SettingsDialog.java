@@ -9,7 +9,13 @@ public class SettingsDialog extends JDialog {
     private final SettingsManager settingsManager;
     private JComboBox<String> themeComboBox;
     private JSlider scanIntervalSlider;
+    private JSpinner decoderThreadsSpinner;
+    private JSpinner duplicateWindowSpinner;
     private JCheckBox saveHistoryCheckBox;
+    private JCheckBox decodeCacheCheckBox;
+    private JSpinner decodeCacheSizeSpinner;
+    private JComboBox<String> screenScanModeComboBox;
+    private JSpinner screenWatchIntervalSpinner;
 
     public SettingsDialog(JFrame parent, SettingsManager settingsManager) {
         super(parent, "Settings", true);
@@ -20,12 +26,14 @@ public class SettingsDialog extends JDialog {
 
     private void initializeUI() {
         setLayout(new BorderLayout());
-        setSize(450, 300);
+        setSize(450, 370);
         setLocationRelativeTo(getOwner());
 
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.addTab("General", createGeneralPanel());
         tabbedPane.addTab("Camera", createCameraPanel());
+        tabbedPane.addTab("Screen", createScreenPanel());
+        tabbedPane.addTab("Files", createFilesPanel());
         tabbedPane.addTab("History", createHistoryPanel());
 
         add(tabbedPane, BorderLayout.CENTER);
@@ -38,6 +46,14 @@ public class SettingsDialog extends JDialog {
         // Camera
         long interval = settingsManager.getScanInterval();
         scanIntervalSlider.setValue((int) (1000 / interval));
+        decoderThreadsSpinner.setValue(settingsManager.getDecoderThreads());
+        duplicateWindowSpinner.setValue((int) (settingsManager.getDuplicateWindow() / 1000));
+        // Screen
+        screenScanModeComboBox.setSelectedIndex(settingsManager.getScreenScanMode() == ScreenScanner.Mode.FIRST_HIT ? 1 : 0);
+        screenWatchIntervalSpinner.setValue((int) Math.max(1, settingsManager.getScreenWatchInterval() / 1000));
+        // Files
+        decodeCacheCheckBox.setSelected(settingsManager.isDecodeCacheEnabled());
+        decodeCacheSizeSpinner.setValue(settingsManager.getDecodeCacheSizeMb());
         // History
         saveHistoryCheckBox.setSelected(settingsManager.isHistorySavingEnabled());
     }
@@ -82,12 +98,103 @@ public class SettingsDialog extends JDialog {
         panel.add(new JLabel("Scan Frequency (Scans per second):"), gbc);
 
         gbc.gridy++;
-        scanIntervalSlider = new JSlider(1, 10, 3);
-        scanIntervalSlider.setMajorTickSpacing(1);
+        scanIntervalSlider = new JSlider(1, 30, 3);
+        scanIntervalSlider.setMajorTickSpacing(5);
+        scanIntervalSlider.setMinorTickSpacing(1);
         scanIntervalSlider.setPaintTicks(true);
         scanIntervalSlider.setPaintLabels(true);
         panel.add(scanIntervalSlider, gbc);
 
+        gbc.gridy++;
+        gbc.gridwidth = 1;
+        panel.add(new JLabel("Decoder Threads:"), gbc);
+
+        gbc.gridx = 1;
+        int maxThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        decoderThreadsSpinner = new JSpinner(new SpinnerNumberModel(1, 1, maxThreads, 1));
+        panel.add(decoderThreadsSpinner, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy++;
+        panel.add(new JLabel("Ignore repeats for (seconds):"), gbc);
+
+        gbc.gridx = 1;
+        duplicateWindowSpinner = new JSpinner(new SpinnerNumberModel(3, 0, 60, 1));
+        panel.add(duplicateWindowSpinner, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy++;
+        gbc.gridwidth = 2;
+        panel.add(new JLabel("<html><i>(Thread changes apply when the camera restarts)</i></html>"), gbc);
+
+        gbc.gridy++;
+        gbc.weighty = 1.0;
+        panel.add(new JLabel(), gbc);
+
+        return panel;
+    }
+
+    private JPanel createScreenPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(new EmptyBorder(15, 15, 15, 15));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("Hotkey Scan:"), gbc);
+
+        gbc.gridx = 1;
+        screenScanModeComboBox = new JComboBox<>(new String[]{"All displays", "Stop at first display with a code"});
+        panel.add(screenScanModeComboBox, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy++;
+        panel.add(new JLabel("Watch Interval (seconds):"), gbc);
+
+        gbc.gridx = 1;
+        screenWatchIntervalSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 60, 1));
+        panel.add(screenWatchIntervalSpinner, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy++;
+        gbc.gridwidth = 2;
+        panel.add(new JLabel("<html><i>(Interval changes apply the next time screen watching starts)</i></html>"), gbc);
+
+        gbc.gridy++;
+        gbc.weighty = 1.0;
+        panel.add(new JLabel(), gbc);
+
+        return panel;
+    }
+
+    private JPanel createFilesPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(new EmptyBorder(15, 15, 15, 15));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 2;
+        decodeCacheCheckBox = new JCheckBox("Remember results of scanned files");
+        panel.add(decodeCacheCheckBox, gbc);
+
+        gbc.gridy++;
+        gbc.gridwidth = 1;
+        panel.add(new JLabel("Cache Size (MB):"), gbc);
+
+        gbc.gridx = 1;
+        decodeCacheSizeSpinner = new JSpinner(new SpinnerNumberModel(64, 1, 4096, 16));
+        panel.add(decodeCacheSizeSpinner, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy++;
+        gbc.gridwidth = 2;
+        panel.add(new JLabel("<html><i>(Unchanged files are answered without decoding them again)</i></html>"), gbc);
+
         gbc.gridy++;
         gbc.weighty = 1.0;
         panel.add(new JLabel(), gbc);
@@ -137,6 +244,19 @@ public class SettingsDialog extends JDialog {
         int scansPerSecond = scanIntervalSlider.getValue();
         long intervalMillis = 1000 / Math.max(1, scansPerSecond);
         settingsManager.setScanInterval(intervalMillis);
+        int decoderThreads = (Integer) decoderThreadsSpinner.getValue();
+        settingsManager.setDecoderThreads(decoderThreads);
+        long duplicateWindowMillis = ((Integer) duplicateWindowSpinner.getValue()) * 1000L;
+        settingsManager.setDuplicateWindow(duplicateWindowMillis);
+
+        // Save Screen settings
+        settingsManager.setScreenScanMode(screenScanModeComboBox.getSelectedIndex() == 1
+            ? ScreenScanner.Mode.FIRST_HIT : ScreenScanner.Mode.ALL);
+        settingsManager.setScreenWatchInterval(((Integer) screenWatchIntervalSpinner.getValue()) * 1000L);
+
+        // Save Files settings
+        settingsManager.setDecodeCacheEnabled(decodeCacheCheckBox.isSelected());
+        settingsManager.setDecodeCacheSizeMb((Integer) decodeCacheSizeSpinner.getValue());
 
         // Save History settings
         settingsManager.setHistorySavingEnabled(saveHistoryCheckBox.isSelected());
@@ -144,6 +264,8 @@ public class SettingsDialog extends JDialog {
         // Apply settings that can be changed live
         QRScannerApp mainApp = (QRScannerApp) getOwner();
         mainApp.getCameraPanel().setScanInterval(intervalMillis);
+        mainApp.getCameraPanel().setDecoderThreads(decoderThreads);
+        mainApp.getDuplicateSuppressor().setWindow(duplicateWindowMillis);
 
         JOptionPane.showMessageDialog(this, "Settings applied.", "Settings", JOptionPane.INFORMATION_MESSAGE);
 
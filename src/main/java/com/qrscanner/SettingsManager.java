@@ -1,5 +1,8 @@
 package com.qrscanner;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.prefs.Preferences;
 
 public class SettingsManager {
@@ -8,6 +11,14 @@ public class SettingsManager {
     private static final String THEME = "theme";
     private static final String SCAN_INTERVAL = "scan_interval";
     private static final String SAVE_HISTORY = "save_history";
+    private static final String DECODER_THREADS = "decoder_threads";
+    private static final String DUPLICATE_WINDOW = "duplicate_window";
+    private static final String DECODE_CACHE = "decode_cache";
+    private static final String DECODE_CACHE_SIZE = "decode_cache_size";
+    private static final String HOT_FOLDERS = "hot_folders";
+    private static final String SCREEN_WATCH = "screen_watch";
+    private static final String SCREEN_WATCH_INTERVAL = "screen_watch_interval";
+    private static final String SCREEN_SCAN_MODE = "screen_scan_mode";
 
     public SettingsManager() {
         // Creates a unique preference node for this application
@@ -33,6 +44,89 @@ public class SettingsManager {
         prefs.putLong(SCAN_INTERVAL, intervalMillis);
     }
 
+    // --- Decoder Workers Setting ---
+    public int getDecoderThreads() {
+        return prefs.getInt(DECODER_THREADS, defaultDecoderThreads());
+    }
+
+    public void setDecoderThreads(int threads) {
+        prefs.putInt(DECODER_THREADS, threads);
+    }
+
+    /** Leaves one core for capture and the UI, capped at four decoders. */
+    public static int defaultDecoderThreads() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    // --- Duplicate Suppression Setting ---
+    public long getDuplicateWindow() {
+        // Default to 3 seconds between repeated reports of the same code
+        return prefs.getLong(DUPLICATE_WINDOW, 3000);
+    }
+
+    public void setDuplicateWindow(long windowMillis) {
+        prefs.putLong(DUPLICATE_WINDOW, windowMillis);
+    }
+
+    // --- File Scan Cache Settings ---
+    public boolean isDecodeCacheEnabled() {
+        return prefs.getBoolean(DECODE_CACHE, true);
+    }
+
+    public void setDecodeCacheEnabled(boolean enabled) {
+        prefs.putBoolean(DECODE_CACHE, enabled);
+    }
+
+    public int getDecodeCacheSizeMb() {
+        // Default to 64 MB, room for several hundred thousand files
+        return prefs.getInt(DECODE_CACHE_SIZE, 64);
+    }
+
+    public void setDecodeCacheSizeMb(int megabytes) {
+        prefs.putInt(DECODE_CACHE_SIZE, megabytes);
+    }
+
+    // --- Hot Folder Setting ---
+    public List<String> getHotFolders() {
+        String folders = prefs.get(HOT_FOLDERS, "");
+        return folders.isEmpty() ? Collections.emptyList() : Arrays.asList(folders.split("\n"));
+    }
+
+    public void setHotFolders(List<String> folders) {
+        prefs.put(HOT_FOLDERS, String.join("\n", folders));
+    }
+
+    // --- Screen Scan Settings ---
+    public ScreenScanner.Mode getScreenScanMode() {
+        try {
+            return ScreenScanner.Mode.valueOf(prefs.get(SCREEN_SCAN_MODE, ScreenScanner.Mode.ALL.name()));
+        } catch (IllegalArgumentException e) {
+            return ScreenScanner.Mode.ALL;
+        }
+    }
+
+    public void setScreenScanMode(ScreenScanner.Mode mode) {
+        prefs.put(SCREEN_SCAN_MODE, mode.name());
+    }
+
+    // --- Screen Watch Settings ---
+    public boolean isScreenWatchEnabled() {
+        return prefs.getBoolean(SCREEN_WATCH, false);
+    }
+
+    public void setScreenWatchEnabled(boolean enabled) {
+        prefs.putBoolean(SCREEN_WATCH, enabled);
+    }
+
+    public long getScreenWatchInterval() {
+        // Default to one capture a second, slow enough to stay near idle
+        return prefs.getLong(SCREEN_WATCH_INTERVAL, 1000);
+    }
+
+    public void setScreenWatchInterval(long intervalMillis) {
+        prefs.putLong(SCREEN_WATCH_INTERVAL, intervalMillis);
+    }
+
     // --- History Setting ---
     public boolean isHistorySavingEnabled() {
         return prefs.getBoolean(SAVE_HISTORY, true); // Default to true
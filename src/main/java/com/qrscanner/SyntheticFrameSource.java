@@ -0,0 +1,258 @@
+package com.qrscanner;
+
+import com.google.zxing.WriterException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * {@link FrameSource} that renders QR codes into artificial camera frames, for
+ * reproducible benchmarks and soak tests without a camera.
+ * <p>
+ * Each scene shows one code, generated with {@link QRProcessor#generateQRCodeImage},
+ * warped onto a random quadrilateral to imitate perspective and box-blurred. Scenes
+ * are rendered once; each frame of a scene only overlays fresh Gaussian sensor noise,
+ * read from a pre-drawn table, so the source costs little CPU next to the decoder
+ * it is driving. A scene lasts a configurable number of frames
+ * before the next payload is placed somewhere else. All randomness comes from one
+ * seeded {@link Random}, so two runs with the same seed and settings see the same
+ * frames.
+ */
+public class SyntheticFrameSource implements FrameSource {
+    private static final int BACKGROUND = 200;
+    /** Pre-drawn standard normal samples; each frame reads them from a random offset. */
+    private static final int NOISE_TABLE_SIZE = 1 << 16;
+
+    private final QRProcessor qrProcessor;
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final FramePacer pacer;
+    private final byte[] scene;
+    private final byte[] plane;
+    private final float[] noiseTable = new float[NOISE_TABLE_SIZE];
+    private final int[] blurBuffer;
+    private final Map<String, ScanFrame> codes = new HashMap<>();
+    private final double[] corners = new double[8];
+    private Random random;
+    private volatile boolean open;
+    private List<String> payloads = Arrays.asList(
+        "WIFI:T:WPA;S:SyntheticNet;P:correct horse battery staple;;",
+        "https://example.com/synthetic",
+        "Synthetic frame source");
+
+    private volatile double noiseSigma = 4.0;
+    private volatile int blurRadius = 1;
+    private volatile double perspective = 0.15;
+    private volatile double minCodeSize = 0.3;
+    private volatile double maxCodeSize = 0.6;
+    private volatile int framesPerScene = 30;
+
+    private long frameNumber;
+    private String currentPayload;
+    private volatile String lastPayload;
+
+    /** @param framesPerSecond frame rate; {@code 0} or less renders frames as fast as they are grabbed. */
+    public SyntheticFrameSource(QRProcessor qrProcessor, int width, int height, double framesPerSecond, long seed) {
+        this.qrProcessor = qrProcessor;
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.pacer = new FramePacer(framesPerSecond);
+        this.scene = new byte[width * height];
+        this.plane = new byte[width * height];
+        this.blurBuffer = new int[width * height];
+    }
+
+    @Override
+    public void open() throws IOException {
+        random = new Random(seed);
+        for (int i = 0; i < noiseTable.length; i++) noiseTable[i] = (float) random.nextGaussian();
+        frameNumber = 0;
+        currentPayload = null;
+        pacer.restart();
+        try {
+            for (String payload : payloads) {
+                if (codes.containsKey(payload)) continue;
+                ScanFrame code = new ScanFrame();
+                code.loadImage(qrProcessor.generateQRCodeImage(payload));
+                codes.put(payload, code);
+            }
+        } catch (WriterException e) {
+            throw new IOException("Could not render synthetic QR code: " + e.getMessage(), e);
+        }
+        open = true;
+    }
+
+    @Override
+    public boolean grabInto(ScanFrame target) throws InterruptedException {
+        if (!open) return false;
+        pacer.awaitNextFrame();
+        if (currentPayload == null || frameNumber % framesPerScene == 0) {
+            nextScene();
+            render(codes.get(currentPayload));
+            if (blurRadius > 0) blur(blurRadius);
+        }
+        frameNumber++;
+        if (noiseSigma > 0) {
+            addNoise(noiseSigma);
+            target.loadLuminance(plane, width, height);
+        } else {
+            target.loadLuminance(scene, width, height);
+        }
+        lastPayload = currentPayload;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public String getName() {
+        return "Synthetic " + width + "x" + height;
+    }
+
+    /** Payloads shown in turn; takes effect the next time the source is opened. */
+    public void setPayloads(List<String> payloads) {
+        if (payloads.isEmpty()) throw new IllegalArgumentException("At least one payload is required");
+        this.payloads = new ArrayList<>(payloads);
+    }
+
+    /** Standard deviation of the per-pixel sensor noise, in grey levels. */
+    public void setNoise(double sigma) { this.noiseSigma = Math.max(0, sigma); }
+    /** Radius in pixels of the box blur applied to every frame; {@code 0} disables it. */
+    public void setBlurRadius(int radius) { this.blurRadius = Math.max(0, radius); }
+    /** How far each corner may move off the square, as a fraction of the code's size. */
+    public void setPerspective(double amount) { this.perspective = Math.max(0, Math.min(0.4, amount)); }
+    /** Code size range, as fractions of the shorter frame side. */
+    public void setCodeSize(double min, double max) {
+        this.minCodeSize = Math.max(0.05, Math.min(min, max));
+        this.maxCodeSize = Math.min(1.0, Math.max(min, max));
+    }
+    /** Number of frames each code stays in view before the scene changes. */
+    public void setFramesPerScene(int frames) { this.framesPerScene = Math.max(1, frames); }
+
+    /** Payload of the code in the last frame handed out; the ground truth for that frame. */
+    public String getLastPayload() { return lastPayload; }
+    public List<String> getPayloads() { return payloads; }
+
+    private void nextScene() {
+        currentPayload = payloads.get(random.nextInt(payloads.size()));
+        double shorter = Math.min(width, height);
+        double size = shorter * (minCodeSize + random.nextDouble() * (maxCodeSize - minCodeSize));
+        double left = random.nextDouble() * (width - size);
+        double top = random.nextDouble() * (height - size);
+        double[] square = {left, top, left + size, top, left + size, top + size, left, top + size};
+        double jitter = size * perspective;
+        for (int i = 0; i < corners.length; i++) {
+            corners[i] = square[i] + (random.nextDouble() * 2 - 1) * jitter;
+        }
+    }
+
+    /**
+     * Fills the scene with the background and draws {@code code} onto the current
+     * quadrilateral by inverse-mapping every covered pixel back into the code image.
+     */
+    private void render(ScanFrame code) {
+        Arrays.fill(scene, (byte) BACKGROUND);
+        double[] inverse = squareToQuad(corners);
+        invert(inverse);
+        int minX = Math.max(0, (int) Math.floor(min(corners, 0)));
+        int maxX = Math.min(width - 1, (int) Math.ceil(max(corners, 0)));
+        int minY = Math.max(0, (int) Math.floor(min(corners, 1)));
+        int maxY = Math.min(height - 1, (int) Math.ceil(max(corners, 1)));
+        byte[] codeLuminances = code.getLuminances();
+        int codeWidth = code.getWidth();
+        int codeHeight = code.getHeight();
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                double w = inverse[6] * x + inverse[7] * y + inverse[8];
+                double u = (inverse[0] * x + inverse[1] * y + inverse[2]) / w;
+                double v = (inverse[3] * x + inverse[4] * y + inverse[5]) / w;
+                if (u < 0 || u >= 1 || v < 0 || v >= 1) continue;
+                scene[y * width + x] = codeLuminances[(int) (v * codeHeight) * codeWidth + (int) (u * codeWidth)];
+            }
+        }
+    }
+
+    /** Separable box blur, horizontal into {@link #blurBuffer} and vertical back into the scene. */
+    private void blur(int radius) {
+        int span = 2 * radius + 1;
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int sum = 0;
+            for (int x = -radius; x <= radius; x++) sum += scene[row + clamp(x, width)] & 0xFF;
+            for (int x = 0; x < width; x++) {
+                blurBuffer[row + x] = sum;
+                sum += (scene[row + clamp(x + radius + 1, width)] & 0xFF) - (scene[row + clamp(x - radius, width)] & 0xFF);
+            }
+        }
+        for (int x = 0; x < width; x++) {
+            int sum = 0;
+            for (int y = -radius; y <= radius; y++) sum += blurBuffer[clamp(y, height) * width + x];
+            for (int y = 0; y < height; y++) {
+                scene[y * width + x] = (byte) ((sum + span * span / 2) / (span * span));
+                sum += blurBuffer[clamp(y + radius + 1, height) * width + x] - blurBuffer[clamp(y - radius, height) * width + x];
+            }
+        }
+    }
+
+    /** Writes the scene plus noise into the output plane. */
+    private void addNoise(double sigma) {
+        float scale = (float) sigma;
+        int offset = random.nextInt(NOISE_TABLE_SIZE);
+        for (int i = 0; i < plane.length; i++) {
+            int value = (scene[i] & 0xFF) + Math.round(noiseTable[(offset + i) & (NOISE_TABLE_SIZE - 1)] * scale);
+            plane[i] = (byte) (value < 0 ? 0 : value > 255 ? 255 : value);
+        }
+    }
+
+    /**
+     * Projective mapping of the unit square onto a quadrilateral given as four (x, y)
+     * corners clockwise from top-left, as a row-major 3x3 matrix (Heckbert's closed form).
+     */
+    static double[] squareToQuad(double[] quad) {
+        double x0 = quad[0], y0 = quad[1], x1 = quad[2], y1 = quad[3];
+        double x2 = quad[4], y2 = quad[5], x3 = quad[6], y3 = quad[7];
+        double dx3 = x0 - x1 + x2 - x3;
+        double dy3 = y0 - y1 + y2 - y3;
+        double g = 0, h = 0;
+        if (dx3 != 0 || dy3 != 0) {
+            double dx1 = x1 - x2, dx2 = x3 - x2, dy1 = y1 - y2, dy2 = y3 - y2;
+            double det = dx1 * dy2 - dx2 * dy1;
+            g = (dx3 * dy2 - dx2 * dy3) / det;
+            h = (dx1 * dy3 - dx3 * dy1) / det;
+        }
+        return new double[]{
+            x1 - x0 + g * x1, x3 - x0 + h * x3, x0,
+            y1 - y0 + g * y1, y3 - y0 + h * y3, y0,
+            g, h, 1};
+    }
+
+    /** Replaces a 3x3 matrix by its adjugate, which inverts it up to a scale that cancels out. */
+    private static void invert(double[] m) {
+        double a = m[0], b = m[1], c = m[2], d = m[3], e = m[4], f = m[5], g = m[6], h = m[7], i = m[8];
+        m[0] = e * i - f * h; m[1] = c * h - b * i; m[2] = b * f - c * e;
+        m[3] = f * g - d * i; m[4] = a * i - c * g; m[5] = c * d - a * f;
+        m[6] = d * h - e * g; m[7] = b * g - a * h; m[8] = a * e - b * d;
+    }
+
+    private static double min(double[] quad, int axis) {
+        return Math.min(Math.min(quad[axis], quad[axis + 2]), Math.min(quad[axis + 4], quad[axis + 6]));
+    }
+
+    private static double max(double[] quad, int axis) {
+        return Math.max(Math.max(quad[axis], quad[axis + 2]), Math.max(quad[axis + 4], quad[axis + 6]));
+    }
+
+    private static int clamp(int value, int length) {
+        return value < 0 ? 0 : value >= length ? length - 1 : value;
+    }
+}
@@ -0,0 +1,149 @@
+package com.qrscanner;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Splits a very large luminance plane into overlapping tiles and decodes them in
+ * parallel on a shared {@link ForkJoinPool}.
+ * <p>
+ * Tiles overlap by a fixed margin so that a code cut by one tile boundary lies
+ * wholly inside a neighbouring tile. Codes found twice in overlapping tiles are
+ * merged when both their payload and their position match.
+ */
+public class TileDecoder {
+    private static final int DEFAULT_TILE_SIZE = 1024;
+    private static final int DEFAULT_OVERLAP = 256;
+    /** Two hits with the same payload whose centres are closer than this are the same code. */
+    private static final float SAME_POSITION_DISTANCE = 32f;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("qr-tile-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    private final int tileSize;
+    private final int overlap;
+
+    public TileDecoder() {
+        this(DEFAULT_TILE_SIZE, DEFAULT_OVERLAP);
+    }
+
+    public TileDecoder(int tileSize, int overlap) {
+        if (overlap >= tileSize) throw new IllegalArgumentException("Overlap must be smaller than the tile size");
+        this.tileSize = tileSize;
+        this.overlap = overlap;
+    }
+
+    /**
+     * Decodes every tile of {@code source} with {@code tileDecoder} and merges the results.
+     * Tiles not yet started when the deadline expires are skipped.
+     * @param tileDecoder decodes one tile; results must be in tile coordinates.
+     * @return merged results in {@code source} coordinates.
+     */
+    public List<Result> decode(LuminanceSource source, Function<LuminanceSource, List<Result>> tileDecoder, DecodeDeadline deadline) {
+        List<int[]> tiles = layout(source.getWidth(), source.getHeight());
+        List<Result> results = POOL.invoke(new TileTask(source, tiles, 0, tiles.size(), tileDecoder, deadline));
+        return merge(results);
+    }
+
+    /** Tile rectangles as {x, y, width, height}, stepping by {@code tileSize - overlap}. */
+    List<int[]> layout(int width, int height) {
+        List<int[]> tiles = new ArrayList<>();
+        int step = tileSize - overlap;
+        for (int y = 0; y < height; y += step) {
+            int h = Math.min(tileSize, height - y);
+            for (int x = 0; x < width; x += step) {
+                int w = Math.min(tileSize, width - x);
+                tiles.add(new int[]{x, y, w, h});
+                if (x + w >= width) break;
+            }
+            if (y + h >= height) break;
+        }
+        return tiles;
+    }
+
+    private static List<Result> merge(List<Result> results) {
+        List<Result> merged = new ArrayList<>();
+        for (Result candidate : results) {
+            boolean duplicate = false;
+            for (Result kept : merged) {
+                if (kept.getText().equals(candidate.getText()) && samePosition(kept, candidate)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) merged.add(candidate);
+        }
+        return merged;
+    }
+
+    private static boolean samePosition(Result a, Result b) {
+        float[] ca = centre(a.getResultPoints());
+        float[] cb = centre(b.getResultPoints());
+        if (ca == null || cb == null) return true;
+        return Math.hypot(ca[0] - cb[0], ca[1] - cb[1]) < SAME_POSITION_DISTANCE;
+    }
+
+    private static float[] centre(ResultPoint[] points) {
+        if (points == null) return null;
+        float x = 0, y = 0;
+        int count = 0;
+        for (ResultPoint point : points) {
+            if (point == null) continue;
+            x += point.getX();
+            y += point.getY();
+            count++;
+        }
+        return count == 0 ? null : new float[]{x / count, y / count};
+    }
+
+    private static class TileTask extends RecursiveTask<List<Result>> {
+        private final LuminanceSource source;
+        private final List<int[]> tiles;
+        private final int from;
+        private final int to;
+        private final Function<LuminanceSource, List<Result>> tileDecoder;
+        private final DecodeDeadline deadline;
+
+        TileTask(LuminanceSource source, List<int[]> tiles, int from, int to,
+                 Function<LuminanceSource, List<Result>> tileDecoder, DecodeDeadline deadline) {
+            this.source = source;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.tileDecoder = tileDecoder;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                TileTask left = new TileTask(source, tiles, from, middle, tileDecoder, deadline);
+                left.fork();
+                List<Result> right = new TileTask(source, tiles, middle, to, tileDecoder, deadline).compute();
+                List<Result> results = new ArrayList<>(left.join());
+                results.addAll(right);
+                return results;
+            }
+            if (deadline.isExpired()) return Collections.emptyList();
+            int[] tile = tiles.get(from);
+            List<Result> results = tileDecoder.apply(source.crop(tile[0], tile[1], tile[2], tile[3]));
+            List<Result> mapped = new ArrayList<>(results.size());
+            for (Result result : results) mapped.add(QRDecoder.transform(result, 1, tile[0], tile[1]));
+            return mapped;
+        }
+    }
+}
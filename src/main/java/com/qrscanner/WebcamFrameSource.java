@@ -0,0 +1,58 @@
+package com.qrscanner;
+
+import com.github.sarxos.webcam.Webcam;
+import com.github.sarxos.webcam.WebcamDevice;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+/** {@link FrameSource} backed by a webcam-capture {@link Webcam}. */
+public class WebcamFrameSource implements FrameSource {
+    private final Webcam webcam;
+    private ByteBuffer rgbBuffer; // Reused by the capture thread for every frame
+
+    public WebcamFrameSource(Webcam webcam) {
+        this.webcam = webcam;
+    }
+
+    @Override
+    public void open() {
+        if (!webcam.isOpen()) webcam.open();
+    }
+
+    /**
+     * Reads the camera's raw RGB bytes into a reused buffer when the driver supports it,
+     * so capture allocates nothing per frame. Other drivers fall back to {@code getImage()}.
+     */
+    @Override
+    public boolean grabInto(ScanFrame target) {
+        if (!webcam.isOpen()) return false;
+        if (webcam.getDevice() instanceof WebcamDevice.BufferAccess) {
+            Dimension size = webcam.getViewSize();
+            int capacity = size.width * size.height * 3;
+            if (rgbBuffer == null || rgbBuffer.capacity() != capacity) rgbBuffer = ByteBuffer.allocateDirect(capacity);
+            rgbBuffer.clear();
+            webcam.getImageBytes(rgbBuffer);
+            rgbBuffer.rewind();
+            target.loadRgb(rgbBuffer, size.width, size.height);
+            return true;
+        }
+        BufferedImage image = webcam.getImage();
+        if (image == null) return false;
+        target.loadImage(image);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (webcam.isOpen()) webcam.close();
+    }
+
+    @Override
+    public String getName() {
+        return webcam.getName();
+    }
+
+    public Webcam getWebcam() { return webcam; }
+}
@@ -14,6 +14,35 @@ public class WiFiManager {
     }
     
     public boolean connectToNetwork(QRProcessor.WiFiCredentials credentials) throws Exception {
+        WifiConnectEvent event = new WifiConnectEvent();
+        event.begin();
+        boolean connected = false;
+        try {
+            connected = connect(credentials);
+            return connected;
+        } catch (Exception e) {
+            event.error = redact(e.getMessage(), credentials.getPassword());
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.ssid = credentials.getSsid();
+                event.security = credentials.getSecurity();
+                event.hidden = credentials.isHidden();
+                event.operatingSystem = operatingSystem;
+                event.success = connected;
+                event.commit();
+            }
+        }
+    }
+
+    /** Masks the password in text bound for a recording, in case a command or its output echoed it. */
+    private static String redact(String text, String password) {
+        if (text == null || password == null || password.isEmpty()) return text;
+        return text.replace(password, "****");
+    }
+
+    private boolean connect(QRProcessor.WiFiCredentials credentials) throws Exception {
         if (operatingSystem.contains("win")) {
             return connectWindowsWiFi(credentials);
         } else if (operatingSystem.contains("mac")) {
@@ -93,7 +122,8 @@ public class WiFiManager {
 
         if (!process.waitFor(15, TimeUnit.SECONDS)) {
             process.destroyForcibly();
-            throw new Exception("Command timed out: " + String.join(" ", command));
+            // Only the program name: the arguments can carry the network password.
+            throw new Exception("Command timed out: " + command[0]);
         }
         if (process.exitValue() != 0) {
             String error = readProcessOutput(process.getInputStream());
@@ -0,0 +1,31 @@
+package com.qrscanner;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Flight Recorder event for a {@link WiFiManager#connectToNetwork} call. The password is never recorded. */
+@Name("com.qrscanner.WifiConnect")
+@Label("WiFi Connect")
+@Category({"QR Scanner", "WiFi"})
+@Description("Connection attempt to a network from a WiFi QR code")
+class WifiConnectEvent extends jdk.jfr.Event {
+    @Label("SSID")
+    String ssid;
+
+    @Label("Security")
+    String security;
+
+    @Label("Hidden")
+    boolean hidden;
+
+    @Label("Operating System")
+    String operatingSystem;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Error")
+    String error;
+}